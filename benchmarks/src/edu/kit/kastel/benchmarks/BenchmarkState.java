@@ -0,0 +1,102 @@
+package edu.kit.kastel.benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import edu.kit.kastel.Message;
+import edu.kit.kastel.OutputSink;
+import edu.kit.kastel.commands.Command;
+import edu.kit.kastel.model.Graph;
+
+/**
+ * Shared benchmark state holding a generated catalog graph.
+ *
+ * <p>
+ * Commands print their results to the standard output. While a benchmark runs, the standard output is replaced by a stream discarding all
+ * data, so the measurements are not dominated by the console of the harness. Commands are run through {@link #execute(Command)}, which
+ * prints into a buffered console sink like the command loop does.
+ * </p>
+ *
+ * @author uupyx
+ */
+@State(Scope.Benchmark)
+public class BenchmarkState {
+
+    /** Number of products of the catalog. */
+    @Param({ "10000", "100000" })
+    public int products;
+
+    /** Number of categories of the catalog. */
+    @Param({ "100" })
+    public int categories;
+
+    /** Number of categories every product is contained in. */
+    @Param({ "2" })
+    public int categoriesPerProduct;
+
+    /** Length of the successor chains. */
+    @Param({ "50" })
+    public int chainLength;
+
+    /** Number of products every product is part of. */
+    @Param({ "1" })
+    public int partsPerProduct;
+
+    /** Whether the graph is frozen into its compact form after generation. */
+    @Param({ "true", "false" })
+    public boolean frozen;
+
+    /** The generator of the catalog. */
+    public CatalogGenerator generator;
+
+    /** The catalog graph. */
+    public Graph graph;
+
+    private PrintStream originalOut;
+    private OutputSink sink;
+
+    /**
+     * Generates the catalog and silences the standard output.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        generator = new CatalogGenerator(products, categories, categoriesPerProduct, chainLength, partsPerProduct);
+        graph = generator.graph();
+        if (frozen) {
+            graph.freeze();
+        }
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        sink = OutputSink.console();
+    }
+
+    /**
+     * Executes a command on the current thread with its messages redirected into the console sink, and flushes the sink afterwards.
+     *
+     * @param command the command.
+     */
+    public void execute(Command command) {
+        Message.redirect(sink);
+        try {
+            command.execute();
+        } finally {
+            Message.flush();
+            Message.redirect(null);
+        }
+    }
+
+    /**
+     * Restores the standard output.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+}
@@ -0,0 +1,135 @@
+package edu.kit.kastel.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import edu.kit.kastel.model.Edge;
+import edu.kit.kastel.model.Graph;
+import edu.kit.kastel.ui.EdgeParser;
+
+/**
+ * Generator for synthetic product catalogs.
+ *
+ * <p>
+ * Products are numbered from one. Every product is contained in {@code categoriesPerProduct} random categories. Consecutive products form
+ * successor chains of {@code chainLength} products, and every product that is not a chain head is part of {@code partsPerProduct} random
+ * products. Categories are nested into a single root category. The generator is deterministic for a given seed.
+ * </p>
+ *
+ * @author uupyx
+ */
+public final class CatalogGenerator {
+
+    private static final long SEED = 42L;
+    private static final String ROOT_CATEGORY = "catalog";
+
+    private final int products;
+    private final int categories;
+    private final int categoriesPerProduct;
+    private final int chainLength;
+    private final int partsPerProduct;
+
+    /**
+     * Constructs a CatalogGenerator.
+     *
+     * @param products the number of products.
+     * @param categories the number of categories.
+     * @param categoriesPerProduct the number of categories every product is contained in.
+     * @param chainLength the length of the successor chains.
+     * @param partsPerProduct the number of products every product is part of.
+     */
+    public CatalogGenerator(int products, int categories, int categoriesPerProduct, int chainLength, int partsPerProduct) {
+        this.products = products;
+        this.categories = categories;
+        this.categoriesPerProduct = categoriesPerProduct;
+        this.chainLength = chainLength;
+        this.partsPerProduct = partsPerProduct;
+    }
+
+    /**
+     * Generates the edge specifications of the catalog in database file syntax.
+     *
+     * @return the lines of the database.
+     */
+    public List<String> lines() {
+        Random random = new Random(SEED);
+        List<String> lines = new ArrayList<>();
+        for (int c = 0; c < categories; c++) {
+            lines.add(category(c) + " contained-in " + ROOT_CATEGORY);
+        }
+        for (int p = 1; p <= products; p++) {
+            for (int k = 0; k < categoriesPerProduct; k++) {
+                lines.add(product(p) + " contained-in " + category(random.nextInt(categories)));
+            }
+            if ((p - 1) % chainLength != 0) {
+                lines.add(product(p) + " successor-of " + product(p - 1));
+                for (int k = 0; k < partsPerProduct; k++) {
+                    int whole = 1 + random.nextInt(products);
+                    if (whole != p) {
+                        lines.add(product(p) + " part-of " + product(whole));
+                    }
+                }
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Writes the catalog into a database file.
+     *
+     * @param file the target file.
+     * @throws IOException if the file cannot be written.
+     */
+    public void write(Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (String line : lines()) {
+                writer.write(line);
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Builds the catalog as a graph.
+     *
+     * @return the loaded graph.
+     */
+    public Graph graph() {
+        Graph graph = new Graph();
+        for (String line : lines()) {
+            Edge edge = EdgeParser.parse(line);
+            graph.addEdge(edge);
+        }
+        graph.setLoaded(true);
+        return graph;
+    }
+
+    /**
+     * Returns the id of the last product of the first successor chain, the product with the longest predecessor history.
+     *
+     * @return the product id.
+     */
+    public int chainTail() {
+        return Math.min(chainLength, products);
+    }
+
+    /**
+     * Returns the name of a product in database syntax.
+     *
+     * @param id the product id.
+     * @return the product specification.
+     */
+    public static String product(int id) {
+        return "product" + id + " (id=" + id + ")";
+    }
+
+    private static String category(int index) {
+        return "category" + index;
+    }
+}
@@ -0,0 +1,68 @@
+package edu.kit.kastel.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.kit.kastel.commands.EdgesCommand;
+import edu.kit.kastel.commands.ExportCommand;
+import edu.kit.kastel.commands.NodesCommand;
+
+/**
+ * Benchmarks for the commands listing the whole graph.
+ *
+ * @author uupyx
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListingBenchmark {
+
+    /**
+     * Lists all nodes.
+     *
+     * @param state the benchmark state.
+     */
+    @Benchmark
+    public void nodes(BenchmarkState state) {
+        state.execute(new NodesCommand(state.graph));
+    }
+
+    /**
+     * Lists one page of nodes from the middle of the listing.
+     *
+     * @param state the benchmark state.
+     */
+    @Benchmark
+    public void nodesPage(BenchmarkState state) {
+        state.execute(new NodesCommand(state.graph, "5000 100"));
+    }
+
+    /**
+     * Lists all edges.
+     *
+     * @param state the benchmark state.
+     */
+    @Benchmark
+    public void edges(BenchmarkState state) {
+        state.execute(new EdgesCommand(state.graph));
+    }
+
+    /**
+     * Exports the graph in DOT format.
+     *
+     * @param state the benchmark state.
+     */
+    @Benchmark
+    public void export(BenchmarkState state) {
+        state.execute(new ExportCommand(state.graph, null));
+    }
+}
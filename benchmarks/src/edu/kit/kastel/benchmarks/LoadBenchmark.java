@@ -0,0 +1,86 @@
+package edu.kit.kastel.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.kit.kastel.commands.LoadDatabaseCommand;
+import edu.kit.kastel.model.Graph;
+
+/**
+ * Benchmarks for loading a database file.
+ *
+ * @author uupyx
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoadBenchmark {
+
+    /** Number of products of the catalog. */
+    @Param({ "10000", "100000" })
+    public int products;
+
+    /** Load options passed before the path. */
+    @Param({ "--no-echo", "--no-echo --parallel" })
+    public String options;
+
+    private Path file;
+    private PrintStream originalOut;
+
+    /**
+     * Writes the catalog into a temporary database file.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("catalog", ".txt");
+        new CatalogGenerator(products, 100, 2, 50, 1).write(file);
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    /**
+     * Deletes the temporary database file.
+     *
+     * @throws IOException if the file cannot be deleted.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.setOut(originalOut);
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Loads the database into a new graph.
+     *
+     * @return the loaded graph.
+     */
+    @Benchmark
+    public Graph loadDatabase() {
+        Graph graph = new Graph();
+        new LoadDatabaseCommand(graph, "load database " + options + " " + file).execute();
+        return graph;
+    }
+}
@@ -0,0 +1,78 @@
+package edu.kit.kastel.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.kit.kastel.model.Batch;
+import edu.kit.kastel.model.Edge;
+import edu.kit.kastel.ui.EdgeParser;
+
+/**
+ * Benchmarks for adding and removing edges. Every invocation adds an edge and removes it again, so the graph stays unchanged.
+ *
+ * @author uupyx
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MutationBenchmark {
+
+    private static final Edge NEW_PRODUCT = EdgeParser.parse("novelty (id=0) contained-in category0");
+    private static final Edge NEW_SUCCESSOR = EdgeParser.parse("product2 (id=2) predecessor-of product1 (id=1)");
+    private static final int BATCH_SIZE = 1000;
+    private static final Batch ADD_BATCH = new Batch();
+    private static final Batch REMOVE_BATCH = new Batch();
+
+    static {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            Edge edge = EdgeParser.parse("novelty" + i + " (id=" + (1_000_000 + i) + ") contained-in category0");
+            ADD_BATCH.add(edge);
+            REMOVE_BATCH.remove(edge);
+        }
+    }
+
+    /**
+     * Adds and removes an edge introducing a new product.
+     *
+     * @param state the benchmark state.
+     * @return whether the edge was removed.
+     */
+    @Benchmark
+    public boolean addRemoveProduct(BenchmarkState state) {
+        state.graph.addEdge(NEW_PRODUCT);
+        return state.graph.removeEdge(NEW_PRODUCT);
+    }
+
+    /**
+     * Adds and removes an edge between existing products.
+     *
+     * @param state the benchmark state.
+     * @return whether the edge was removed.
+     */
+    @Benchmark
+    public boolean addRemoveRelation(BenchmarkState state) {
+        state.graph.addEdge(NEW_SUCCESSOR);
+        return state.graph.removeEdge(NEW_SUCCESSOR);
+    }
+
+    /**
+     * Applies a batch adding new products and a batch removing them again.
+     *
+     * @param state the benchmark state.
+     * @return the position of the failed change of the second batch, -1 if it was applied.
+     */
+    @Benchmark
+    public int applyBatches(BenchmarkState state) {
+        state.graph.apply(ADD_BATCH);
+        return state.graph.apply(REMOVE_BATCH);
+    }
+}
@@ -0,0 +1,185 @@
+package edu.kit.kastel.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.kit.kastel.commands.RecommendCommand;
+import edu.kit.kastel.model.FinalTerm;
+import edu.kit.kastel.model.IntersectionTerm;
+import edu.kit.kastel.model.ProductSet;
+import edu.kit.kastel.model.UnionTerm;
+import edu.kit.kastel.ui.ParseException;
+
+/**
+ * Benchmarks for evaluating recommendation terms.
+ *
+ * <p>
+ * The graph caches closures and category members across evaluations, so repeated evaluations mostly measure cache lookups. The
+ * {@code Cold} variants drop these caches before every invocation and measure the traversals themselves.
+ * </p>
+ *
+ * @author uupyx
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecommendBenchmark {
+
+    /**
+     * State dropping the caches of the graph before every invocation.
+     */
+    @State(Scope.Benchmark)
+    public static class ColdCaches {
+
+        /**
+         * Drops the cached closures, memberships and materialized results.
+         *
+         * @param state the benchmark state.
+         */
+        @Setup(Level.Invocation)
+        public void clear(BenchmarkState state) {
+            state.graph.clearCaches();
+        }
+    }
+
+    /**
+     * Evaluates strategy S1.
+     *
+     * @param state the benchmark state.
+     * @return the recommended products.
+     * @throws ParseException if the evaluation fails.
+     */
+    @Benchmark
+    public ProductSet strategyS1(BenchmarkState state) throws ParseException {
+        return new FinalTerm("S1", 1).evaluate(state.graph);
+    }
+
+    /**
+     * Evaluates strategy S2 at the head of a successor chain.
+     *
+     * @param state the benchmark state.
+     * @return the recommended products.
+     * @throws ParseException if the evaluation fails.
+     */
+    @Benchmark
+    public ProductSet strategyS2(BenchmarkState state) throws ParseException {
+        return new FinalTerm("S2", 1).evaluate(state.graph);
+    }
+
+    /**
+     * Evaluates strategy S2 at the head of a successor chain without cached closures.
+     *
+     * @param state the benchmark state.
+     * @param cold the state dropping the caches.
+     * @return the recommended products.
+     * @throws ParseException if the evaluation fails.
+     */
+    @Benchmark
+    public ProductSet strategyS2Cold(BenchmarkState state, ColdCaches cold) throws ParseException {
+        return new FinalTerm("S2", 1).evaluate(state.graph);
+    }
+
+    /**
+     * Evaluates strategy S3 at the tail of a successor chain.
+     *
+     * @param state the benchmark state.
+     * @return the recommended products.
+     * @throws ParseException if the evaluation fails.
+     */
+    @Benchmark
+    public ProductSet strategyS3(BenchmarkState state) throws ParseException {
+        return new FinalTerm("S3", state.generator.chainTail()).evaluate(state.graph);
+    }
+
+    /**
+     * Evaluates strategy S3 at the tail of a successor chain without cached closures.
+     *
+     * @param state the benchmark state.
+     * @param cold the state dropping the caches.
+     * @return the recommended products.
+     * @throws ParseException if the evaluation fails.
+     */
+    @Benchmark
+    public ProductSet strategyS3Cold(BenchmarkState state, ColdCaches cold) throws ParseException {
+        return new FinalTerm("S3", state.generator.chainTail()).evaluate(state.graph);
+    }
+
+    /**
+     * Evaluates strategy S3 limited to three hops at the tail of a successor chain.
+     *
+     * @param state the benchmark state.
+     * @return the recommended products.
+     * @throws ParseException if the evaluation fails.
+     */
+    @Benchmark
+    public ProductSet strategyS3Bounded(BenchmarkState state) throws ParseException {
+        return new FinalTerm("S3", state.generator.chainTail(), 3).evaluate(state.graph);
+    }
+
+    /**
+     * Plans and evaluates a nested union and intersection expression.
+     *
+     * @param state the benchmark state.
+     * @return the recommended products.
+     * @throws ParseException if the evaluation fails.
+     */
+    @Benchmark
+    public ProductSet nestedTerms(BenchmarkState state) throws ParseException {
+        int tail = state.generator.chainTail();
+        return new IntersectionTerm(new FinalTerm("S1", tail),
+                new UnionTerm(new FinalTerm("S3", tail), new FinalTerm("S2", 1))).plan().evaluate(state.graph);
+    }
+
+    /**
+     * Plans and evaluates a nested union and intersection expression without cached closures and memberships.
+     *
+     * @param state the benchmark state.
+     * @param cold the state dropping the caches.
+     * @return the recommended products.
+     * @throws ParseException if the evaluation fails.
+     */
+    @Benchmark
+    public ProductSet nestedTermsCold(BenchmarkState state, ColdCaches cold) throws ParseException {
+        int tail = state.generator.chainTail();
+        return new IntersectionTerm(new FinalTerm("S1", tail),
+                new UnionTerm(new FinalTerm("S3", tail), new FinalTerm("S2", 1))).plan().evaluate(state.graph);
+    }
+
+    /**
+     * Runs a nested expression through the recommend command. Since the graph is not modified between invocations, this measures the
+     * path answered from the command's result cache.
+     *
+     * @param state the benchmark state.
+     */
+    @Benchmark
+    public void recommendCommand(BenchmarkState state) {
+        int tail = state.generator.chainTail();
+        state.execute(new RecommendCommand(state.graph, "INTERSECTION(S1 " + tail + ", UNION(S3 " + tail + ", S2 1))"));
+    }
+
+    /**
+     * Scores a nested expression and selects its ten most relevant products.
+     *
+     * @param state the benchmark state.
+     * @return the selected product indices.
+     * @throws ParseException if the evaluation fails.
+     */
+    @Benchmark
+    public int[] rankedTerms(BenchmarkState state) throws ParseException {
+        int tail = state.generator.chainTail();
+        return new UnionTerm(new FinalTerm("S1", tail), new FinalTerm("S3", tail)).plan().score(state.graph).top(state.graph, 10);
+    }
+}
@@ -1,11 +1,21 @@
 package edu.kit.kastel;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
 /**
  * Enum representing different message formats and methods to print them. Provides methods to print formatted messages to the standard
  * output and error streams.
  *
  * This enum cannot be instantiated and contains predefined message formats.
  *
+ * <p>
+ * The formats are split at their placeholders once, so printing a message only concatenates its parts. A thread can
+ * {@linkplain #redirect(OutputSink) redirect} its messages into an {@link OutputSink}, e.g. a buffered console sink for the command loop
+ * or a per-request buffer of the server.
+ * </p>
+ *
  * @author uupyx
  */
 public enum Message {
@@ -50,6 +60,41 @@ public enum Message {
      */
     FILE_DOES_NOT_EXIST("Error, specified database file does not exist"),
 
+    /**
+     * Message when file path is required for a snapshot command.
+     */
+    SNAPSHOT_PATH_REQUIRED("Error, snapshot command requires a file path"),
+
+    /**
+     * Message when the specified snapshot file does not exist.
+     */
+    SNAPSHOT_DOES_NOT_EXIST("Error, specified snapshot file does not exist"),
+
+    /**
+     * Message when file path is required for applying a batch.
+     */
+    BATCH_PATH_REQUIRED("Error, apply command requires a file path"),
+
+    /**
+     * Message when the specified batch file does not exist.
+     */
+    BATCH_DOES_NOT_EXIST("Error, specified batch file does not exist"),
+
+    /**
+     * Message when a batch is rejected because one of its lines is invalid or cannot be applied.
+     */
+    BATCH_REJECTED("Error, batch not applied, line %d failed: %s"),
+
+    /**
+     * Message for an invalid server port.
+     */
+    INVALID_PORT("Error, invalid server port %s"),
+
+    /**
+     * Message when the export file cannot be written.
+     */
+    EXPORT_FAILED("Error, cannot export to %s"),
+
     /**
      * Message for invalid format in a line.
      */
@@ -70,6 +115,11 @@ public enum Message {
      */
     INVALID_SYNTAX_REMOVE("Error, invalid remove command syntax"),
 
+    /**
+     * Message for invalid 'nodes' command syntax.
+     */
+    INVALID_SYNTAX_NODES("Error, invalid nodes command syntax"),
+
     /**
      * Message when edge is not found.
      */
@@ -95,10 +145,17 @@ public enum Message {
      */
     ECHO("%s");
 
-    private final String format;
+    private static final String PLACEHOLDER = "%[sd]";
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static final ThreadLocal<OutputSink> SINK = new ThreadLocal<>();
+
+    /**
+     * The literal parts of the format, split at its placeholders.
+     */
+    private final String[] segments;
 
     Message(String format) {
-        this.format = format;
+        this.segments = format.split(PLACEHOLDER, -1);
     }
 
     /**
@@ -107,7 +164,12 @@ public enum Message {
      * @param args the arguments to be inserted into the message format
      */
     public void print(Object... args) {
-        System.out.println(String.format(format, args));
+        OutputSink sink = SINK.get();
+        if (sink == null) {
+            System.out.println(format(args));
+        } else {
+            write(sink.output(), args);
+        }
     }
 
     /**
@@ -116,6 +178,62 @@ public enum Message {
      * @param args the arguments to be inserted into the message format
      */
     public void error(Object... args) {
-        System.err.println(String.format(format, args));
+        OutputSink sink = SINK.get();
+        if (sink == null) {
+            System.err.println(format(args));
+        } else {
+            write(sink.error(), args);
+        }
+    }
+
+    /**
+     * Redirects all messages printed by the current thread into a sink.
+     *
+     * @param sink the sink, or null to print directly to the standard streams again.
+     * @return the sink previously used by the current thread, or null if there was none.
+     */
+    public static OutputSink redirect(OutputSink sink) {
+        OutputSink previous = SINK.get();
+        if (sink == null) {
+            SINK.remove();
+        } else {
+            SINK.set(sink);
+        }
+        return previous;
+    }
+
+    /**
+     * Flushes the sink of the current thread, if there is one.
+     */
+    public static void flush() {
+        OutputSink sink = SINK.get();
+        if (sink != null) {
+            sink.flush();
+        }
+    }
+
+    private String format(Object[] args) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < segments.length; i++) {
+            sb.append(segments[i]);
+            if (i < segments.length - 1) {
+                sb.append(args[i]);
+            }
+        }
+        return sb.toString();
+    }
+
+    private void write(Writer writer, Object[] args) {
+        try {
+            for (int i = 0; i < segments.length; i++) {
+                writer.write(segments[i]);
+                if (i < segments.length - 1) {
+                    writer.write(String.valueOf(args[i]));
+                }
+            }
+            writer.write(LINE_SEPARATOR);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
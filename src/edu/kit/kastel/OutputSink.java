@@ -0,0 +1,99 @@
+package edu.kit.kastel;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * Destination of printed {@link Message messages}, with one writer for output and one for error messages.
+ *
+ * <p>
+ * The console sink buffers both standard streams, so a long listing reaches them in large blocks instead of one synchronized, flushed
+ * write per line. Its content is only guaranteed to be written after {@link #flush()}, which the command loop calls after every command.
+ * Whenever a message goes to another writer than the previous one, the previous writer is flushed first, so output and error messages
+ * sharing a terminal still appear in the order they were printed.
+ * </p>
+ *
+ * @author uupyx
+ */
+public final class OutputSink {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Writer out;
+    private final Writer err;
+    private Writer current;
+
+    private OutputSink(Writer out, Writer err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * Creates a buffered sink writing to the current standard output and error streams.
+     *
+     * @return the console sink.
+     */
+    public static OutputSink console() {
+        Charset charset = Charset.defaultCharset();
+        return new OutputSink(new BufferedWriter(new OutputStreamWriter(System.out, charset), BUFFER_SIZE),
+                new BufferedWriter(new OutputStreamWriter(System.err, charset), BUFFER_SIZE));
+    }
+
+    /**
+     * Creates a sink writing output and error messages to the same writer, in the order they are printed.
+     *
+     * @param writer the writer.
+     * @return the sink.
+     */
+    public static OutputSink of(Writer writer) {
+        return new OutputSink(writer, writer);
+    }
+
+    /**
+     * Returns the writer for output messages.
+     *
+     * @return the output writer.
+     */
+    Writer output() {
+        return select(out);
+    }
+
+    /**
+     * Returns the writer for error messages.
+     *
+     * @return the error writer.
+     */
+    Writer error() {
+        return select(err);
+    }
+
+    /**
+     * Writes all buffered messages to the underlying streams.
+     */
+    public void flush() {
+        flush(out);
+        if (err != out) {
+            flush(err);
+        }
+    }
+
+    private Writer select(Writer writer) {
+        if ((current != null) && (current != writer)) {
+            flush(current);
+        }
+        current = writer;
+        return writer;
+    }
+
+    private static void flush(Writer writer) {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
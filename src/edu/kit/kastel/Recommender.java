@@ -1,10 +1,13 @@
 package edu.kit.kastel;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.Scanner;
 
 import edu.kit.kastel.commands.Command;
 import edu.kit.kastel.commands.CommandParser;
 import edu.kit.kastel.model.Graph;
+import edu.kit.kastel.model.MutationLog;
 
 /**
  * Main class for the product recommendation system.
@@ -18,17 +21,40 @@ import edu.kit.kastel.model.Graph;
  * errors, catch them individually or let them propagate.
  * </p>
  *
+ * <p>
+ * Started with {@code --server [port]}, the commands are read from HTTP requests instead, see {@link RecommenderServer}.
+ * </p>
+ *
+ * <p>
+ * Started with {@code --data <directory>}, optionally followed by the server option, the graph is recovered from the directory and every
+ * modification is logged there before its command completes, see {@link MutationLog}.
+ * </p>
+ *
  * @author uupyx
  */
 public final class Recommender {
 
+    private static final String SERVER_OPTION = "--server";
+    private static final String DATA_OPTION = "--data";
+    private static final int DEFAULT_PORT = 8080;
+    private static final int MAXIMUM_PORT = 0xFFFF;
+
     private final Graph graph;
 
     /**
      * Constructs a new Recommender.
      */
     public Recommender() {
-        this.graph = new Graph();
+        this(new Graph());
+    }
+
+    /**
+     * Constructs a new Recommender working on the given graph.
+     *
+     * @param graph the graph.
+     */
+    public Recommender(Graph graph) {
+        this.graph = graph;
     }
 
     /**
@@ -37,14 +63,67 @@ public final class Recommender {
      * @param args command-line arguments.
      */
     public static void main(String[] args) {
-        Recommender app = new Recommender();
-        app.run();
+        Graph graph = new Graph();
+        int first = 0;
+        MutationLog log = null;
+        if ((args.length > 1) && args[0].equals(DATA_OPTION)) {
+            try {
+                log = MutationLog.open(Paths.get(args[1]), graph);
+            } catch (IOException e) {
+                Message.ERROR.error(e.getMessage());
+                return;
+            }
+            first = 2;
+        }
+
+        if ((args.length > first) && args[first].equals(SERVER_OPTION)) {
+            serve(graph, (args.length > first + 1) ? args[first + 1] : null);
+        } else {
+            new Recommender(graph).run();
+        }
+
+        if (log != null) {
+            // The quit command interrupts the thread, which would close the interruptible log channel instead of syncing it.
+            boolean interrupted = Thread.interrupted();
+            try {
+                log.close();
+            } catch (IOException e) {
+                Message.ERROR.error(e.getMessage());
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void serve(Graph graph, String portArgument) {
+        int port = DEFAULT_PORT;
+        if (portArgument != null) {
+            try {
+                port = Integer.parseInt(portArgument);
+            } catch (NumberFormatException e) {
+                port = -1;
+            }
+            if ((port < 0) || (port > MAXIMUM_PORT)) {
+                Message.INVALID_PORT.error(portArgument);
+                return;
+            }
+        }
+        try {
+            new RecommenderServer(graph, port).run();
+        } catch (IOException e) {
+            Message.ERROR.error(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     /**
-     * Runs the command loop. The loop terminates when the current thread is interrupted.
+     * Runs the command loop. The loop terminates when the current thread is interrupted. Messages are buffered and flushed after every
+     * command.
      */
     public void run() {
+        Message.redirect(OutputSink.console());
         try (Scanner scanner = new Scanner(System.in)) {
             while (!Thread.currentThread().isInterrupted()) {
                 if (!scanner.hasNextLine()) {
@@ -56,13 +135,52 @@ public final class Recommender {
                     continue;
                 }
 
-                Command command = CommandParser.parse(input, graph);
-                if (command == null) {
-                    Message.UNKNOWN_COMMAND.error();
-                } else {
-                    command.execute();
+                dispatch(input, graph);
+            }
+        } finally {
+            Message.flush();
+            Message.redirect(null);
+        }
+    }
+
+    /**
+     * Parses and executes a single command line and flushes its output. Commands that modify the graph run while holding its writer lock,
+     * so the graph may be shared with other threads dispatching commands. If the graph is durable, the changes of a modifying command are
+     * sealed into one log record under the lock and committed before the output is flushed. If the record cannot be written or synced,
+     * the log rolls the changes back and the command fails with an error. The new version is published to concurrent readers while the
+     * lock is still held, see {@link Graph#publish()}. Both also happen if the command throws an exception after changing the graph, so
+     * its changes are neither left out of the log nor merged into the record of the next command.
+     *
+     * @param input the trimmed, non-empty command line.
+     * @param graph the graph.
+     */
+    static void dispatch(String input, Graph graph) {
+        Command command = CommandParser.parse(input, graph);
+        if (command == null) {
+            Message.UNKNOWN_COMMAND.error();
+        } else if (command.isReadOnly()) {
+            command.execute();
+        } else {
+            MutationLog log = graph.getLog();
+            try {
+                long record = 0;
+                synchronized (graph) {
+                    try {
+                        command.execute();
+                    } finally {
+                        if (log != null) {
+                            record = log.seal();
+                        }
+                        graph.publish();
+                    }
+                }
+                if (log != null) {
+                    log.commit(record);
                 }
+            } catch (IOException e) {
+                Message.ERROR.error(e.getMessage());
             }
         }
+        Message.flush();
     }
 }
@@ -0,0 +1,154 @@
+package edu.kit.kastel;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import edu.kit.kastel.model.Graph;
+
+/**
+ * HTTP front end serving the command set of the recommender to many clients on one shared graph.
+ *
+ * <p>
+ * Every POST request carries one or more command lines in its body. They are executed in order exactly as if read from the standard
+ * input, and the response body holds every line they printed, output and error messages in the order they were emitted. A {@code quit}
+ * command stops the server after its response has been sent. The server only listens on the loopback interface.
+ * </p>
+ *
+ * <p>
+ * Requests are handled by a fixed thread pool on a graph in {@linkplain Graph#setConcurrent(boolean) concurrent mode}: read-only commands
+ * such as {@code recommend} run in parallel on immutable views, while modifying commands hold the writer lock.
+ * </p>
+ *
+ * @author uupyx
+ */
+public final class RecommenderServer {
+
+    private static final String METHOD_POST = "POST";
+    private static final String ROOT_CONTEXT = "/";
+    private static final String CONTENT_TYPE = "Content-Type";
+    private static final String TEXT_PLAIN = "text/plain; charset=utf-8";
+    private static final String LINE_SEPARATOR = "\n";
+    private static final int STATUS_OK = 200;
+    private static final int STATUS_METHOD_NOT_ALLOWED = 405;
+    private static final int NO_RESPONSE_BODY = -1;
+    private static final int CONNECTION_BACKLOG = 256;
+    private static final int THREADS_PER_PROCESSOR = 4;
+    private static final String NO_DELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+    static {
+        // The built-in server writes headers and body of a response separately. Without TCP_NODELAY the body waits for the delayed
+        // acknowledgement of the headers, which adds about 40 ms to every request on a kept-alive connection.
+        System.setProperty(NO_DELAY_PROPERTY, Boolean.TRUE.toString());
+    }
+
+    private final Graph graph;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final CountDownLatch quit;
+
+    /**
+     * Constructs a RecommenderServer and binds it to a local port.
+     *
+     * @param graph the graph shared by all clients.
+     * @param port the port, or 0 for any free port.
+     * @throws IOException if the port cannot be bound.
+     */
+    public RecommenderServer(Graph graph, int port) throws IOException {
+        this.graph = graph;
+        this.graph.setConcurrent(true);
+        this.quit = new CountDownLatch(1);
+        this.executor = Executors.newFixedThreadPool(THREADS_PER_PROCESSOR * Runtime.getRuntime().availableProcessors());
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), CONNECTION_BACKLOG);
+        this.server.setExecutor(executor);
+        this.server.createContext(ROOT_CONTEXT, this::handle);
+    }
+
+    /**
+     * Returns the port the server is bound to.
+     *
+     * @return the port.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Serves requests until a client sends {@code quit}.
+     *
+     * @throws InterruptedException if the calling thread is interrupted while serving.
+     */
+    public void run() throws InterruptedException {
+        server.start();
+        try {
+            quit.await();
+        } finally {
+            server.stop(0);
+            executor.shutdown();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        boolean quitRequested = false;
+        try {
+            if (!METHOD_POST.equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(STATUS_METHOD_NOT_ALLOWED, NO_RESPONSE_BODY);
+                return;
+            }
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            StringWriter output = new StringWriter();
+            quitRequested = execute(body, output);
+
+            byte[] response = output.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set(CONTENT_TYPE, TEXT_PLAIN);
+            if (response.length == 0) {
+                exchange.sendResponseHeaders(STATUS_OK, NO_RESPONSE_BODY);
+                return;
+            }
+            exchange.sendResponseHeaders(STATUS_OK, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        } finally {
+            exchange.close();
+            if (quitRequested) {
+                quit.countDown();
+            }
+        }
+    }
+
+    /**
+     * Executes the command lines of a request body, capturing everything they print.
+     *
+     * @param body the request body.
+     * @param output the buffer receiving the printed lines.
+     * @return true if a {@code quit} command was executed.
+     */
+    private boolean execute(String body, StringWriter output) {
+        Message.redirect(OutputSink.of(output));
+        try {
+            for (String line : body.split(LINE_SEPARATOR)) {
+                String input = line.trim();
+                if (input.isEmpty()) {
+                    continue;
+                }
+                Recommender.dispatch(input, graph);
+                if (Thread.interrupted()) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            Message.redirect(null);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package edu.kit.kastel.commands;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.kit.kastel.Message;
+import edu.kit.kastel.model.Batch;
+import edu.kit.kastel.model.Edge;
+import edu.kit.kastel.model.Graph;
+import edu.kit.kastel.ui.DatabaseReader;
+import edu.kit.kastel.ui.EdgeParser;
+
+/**
+ * Command to apply a file of edge changes atomically.
+ *
+ * <p>
+ * Syntax: {@code apply <path>}. Every non-empty line of the file is an {@code add} or {@code remove} command with an edge specification.
+ * The whole file is parsed and validated before the graph is modified, and the changes are then applied as one modification, see
+ * {@link Graph#apply(Batch)}. If a line is invalid or fails, e.g. removes an edge that does not exist, the graph is left untouched.
+ * </p>
+ *
+ * @author uupyx
+ */
+public class ApplyCommand implements Command {
+
+    private static final String ADD_PREFIX = "add ";
+    private static final String REMOVE_PREFIX = "remove ";
+
+    private final Graph graph;
+    private final String path;
+
+    /**
+     * Constructs an ApplyCommand.
+     *
+     * @param graph the graph.
+     * @param path the path of the batch file.
+     */
+    public ApplyCommand(Graph graph, String path) {
+        this.graph = graph;
+        this.path = path;
+    }
+
+    /**
+     * Executes the apply command.
+     */
+    @Override
+    public void execute() {
+        if (path.isEmpty()) {
+            Message.BATCH_PATH_REQUIRED.error();
+            return;
+        }
+        Path file;
+        try {
+            file = Paths.get(path);
+        } catch (InvalidPathException e) {
+            Message.BATCH_DOES_NOT_EXIST.error();
+            return;
+        }
+        if (!Files.exists(file) || Files.isDirectory(file)) {
+            Message.BATCH_DOES_NOT_EXIST.error();
+            return;
+        }
+
+        Parser parser = new Parser();
+        try {
+            DatabaseReader.read(file, false, parser);
+        } catch (IOException e) {
+            Message.ERROR.error(e.getMessage());
+            return;
+        }
+        if (parser.failed) {
+            return;
+        }
+
+        int failed = graph.apply(parser.batch);
+        if (failed >= 0) {
+            Message.BATCH_REJECTED.error(parser.lineNumbers.get(failed), parser.lines.get(failed));
+        } else {
+            graph.materialize();
+        }
+    }
+
+    /**
+     * Collects the changes of every line into a batch until the first invalid line, which is reported.
+     */
+    private static final class Parser implements DatabaseReader.LineConsumer {
+        private final Batch batch = new Batch();
+        private final List<String> lines = new ArrayList<>();
+        private final List<Integer> lineNumbers = new ArrayList<>();
+        private int lineNumber;
+        private boolean failed;
+
+        @Override
+        public boolean accept(CharSequence line) {
+            lineNumber++;
+            String trimmed = line.toString().trim();
+            if (trimmed.isEmpty()) {
+                return true;
+            }
+            Edge edge = null;
+            if (trimmed.startsWith(ADD_PREFIX)) {
+                edge = EdgeParser.parse(trimmed.substring(ADD_PREFIX.length()).trim());
+                if (edge != null) {
+                    batch.add(edge);
+                }
+            } else if (trimmed.startsWith(REMOVE_PREFIX)) {
+                edge = EdgeParser.parse(trimmed.substring(REMOVE_PREFIX.length()).trim());
+                if (edge != null) {
+                    batch.remove(edge);
+                }
+            }
+            if (edge == null) {
+                Message.BATCH_REJECTED.error(lineNumber, trimmed);
+                failed = true;
+                return false;
+            }
+            lines.add(trimmed);
+            lineNumbers.add(lineNumber);
+            return true;
+        }
+    }
+}
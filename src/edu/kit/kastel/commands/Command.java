@@ -10,4 +10,15 @@ public interface Command {
      * Executes the command.
      */
     void execute();
+
+    /**
+     * Checks whether the command only reads the graph. Read-only commands read from {@link edu.kit.kastel.model.Graph#view()} and may run
+     * concurrently with each other and with a writer. Every other command must run while holding the writer lock, i.e. the monitor of the
+     * graph, whenever other threads use the same graph.
+     *
+     * @return true if the command does not modify the graph.
+     */
+    default boolean isReadOnly() {
+        return false;
+    }
 }
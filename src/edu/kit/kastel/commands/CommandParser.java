@@ -24,6 +24,46 @@ public final class CommandParser {
         public boolean requiresGraph() {
             return false;
         }
+    }, new CommandFactory() {
+        @Override
+        public boolean matches(String input) {
+            return input.startsWith("reload database");
+        }
+
+        @Override
+        public Command create(String input, Graph graph) {
+            return new LoadDatabaseCommand(graph, input, true);
+        }
+
+        @Override
+        public boolean requiresGraph() {
+            return false;
+        }
+    }, new CommandFactory() {
+        @Override
+        public boolean matches(String input) {
+            return input.startsWith("load snapshot");
+        }
+
+        @Override
+        public Command create(String input, Graph graph) {
+            return new LoadSnapshotCommand(graph, input);
+        }
+
+        @Override
+        public boolean requiresGraph() {
+            return false;
+        }
+    }, new CommandFactory() {
+        @Override
+        public boolean matches(String input) {
+            return input.startsWith("save snapshot");
+        }
+
+        @Override
+        public Command create(String input, Graph graph) {
+            return new SaveSnapshotCommand(graph, input);
+        }
     }, new CommandFactory() {
         @Override
         public boolean matches(String input) {
@@ -62,12 +102,22 @@ public final class CommandParser {
     }, new CommandFactory() {
         @Override
         public boolean matches(String input) {
-            return input.equals("nodes");
+            return input.equals("apply") || input.startsWith("apply ");
+        }
+
+        @Override
+        public Command create(String input, Graph graph) {
+            return new ApplyCommand(graph, input.substring(5).trim());
+        }
+    }, new CommandFactory() {
+        @Override
+        public boolean matches(String input) {
+            return input.equals("nodes") || input.startsWith("nodes ");
         }
 
         @Override
         public Command create(String input, Graph graph) {
-            return new NodesCommand(graph);
+            return new NodesCommand(graph, input.substring(5).trim());
         }
     }, new CommandFactory() {
         @Override
@@ -92,12 +142,13 @@ public final class CommandParser {
     }, new CommandFactory() {
         @Override
         public boolean matches(String input) {
-            return input.equals("export");
+            return input.equals("export") || input.startsWith("export ");
         }
 
         @Override
         public Command create(String input, Graph graph) {
-            return new ExportCommand(graph);
+            String path = input.substring(6).trim();
+            return new ExportCommand(graph, path.isEmpty() ? null : path);
         }
     } };
 
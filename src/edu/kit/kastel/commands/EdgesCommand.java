@@ -1,10 +1,7 @@
 package edu.kit.kastel.commands;
 
-import java.util.Comparator;
-import java.util.TreeSet;
-
 import edu.kit.kastel.Message;
-import edu.kit.kastel.model.Edge;
+import edu.kit.kastel.model.EdgeOrder;
 import edu.kit.kastel.model.Graph;
 
 /**
@@ -29,12 +26,11 @@ public class EdgesCommand implements Command {
      */
     @Override
     public void execute() {
-        TreeSet<Edge> sortedEdges = new TreeSet<>(Comparator.comparing((Edge e) -> e.source.getSortKey())
-                .thenComparing(e -> e.target.getSortKey()).thenComparingInt(e -> e.getPredicateOrder()));
-        sortedEdges.addAll(graph.getEdges());
+        EdgeOrder.forEachSorted(graph.view(), e -> Message.ECHO.print(e.getDisplayString()));
+    }
 
-        for (Edge e : sortedEdges) {
-            Message.ECHO.print(e.getDisplayString());
-        }
+    @Override
+    public boolean isReadOnly() {
+        return true;
     }
 }
@@ -1,49 +1,87 @@
 package edu.kit.kastel.commands;
 
-import java.util.Comparator;
-import java.util.TreeSet;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 import edu.kit.kastel.Message;
+import edu.kit.kastel.OutputSink;
 import edu.kit.kastel.model.Category;
-import edu.kit.kastel.model.Edge;
+import edu.kit.kastel.model.EdgeOrder;
 import edu.kit.kastel.model.Graph;
+import edu.kit.kastel.model.GraphView;
 
 /**
- * Command to export the graph in DOT format.
+ * Command to export the graph in DOT format, either to the standard output or into a file.
+ *
+ * <p>
+ * The edges are streamed in display order through {@link EdgeOrder#forEachSorted(GraphView, java.util.function.Consumer)}, so the export
+ * never holds a sorted copy of all edges.
+ * </p>
  *
  * @author uupyx
  */
 public class ExportCommand implements Command {
 
+    private static final int BUFFER_SIZE = 1 << 16;
+
     private final Graph graph;
+    private final String path;
 
     /**
      * Constructs an ExportCommand.
      *
      * @param graph the graph.
+     * @param path the file to export to, or null to print to the standard output.
      */
-    public ExportCommand(Graph graph) {
+    public ExportCommand(Graph graph, String path) {
         this.graph = graph;
+        this.path = path;
     }
 
     /**
-     * Executes the export command.
+     * Executes the export command. If the file cannot be opened or written, e.g. because the device is full, an error is reported and
+     * the command loop continues.
      */
     @Override
     public void execute() {
-        Message.DIGRAPH_START.print();
-
-        TreeSet<Edge> sortedEdges = new TreeSet<>(Comparator.comparing((Edge e) -> e.source.getSortKey())
-                .thenComparing(e -> e.target.getSortKey()).thenComparing(e -> e.getPredicateOrder()));
-        sortedEdges.addAll(graph.getEdges());
-
-        for (Edge e : sortedEdges) {
-            Message.ECHO.print(e.getDotString());
+        GraphView view = graph.view();
+        if (path == null) {
+            export(view);
+            return;
         }
-        for (Category c : graph.getCategories()) {
-            Message.DIGRAPH_SHAPE.print(c.name.toLowerCase());
+
+        try (Writer writer = new BufferedWriter(Channels.newWriter(FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            OutputSink previous = Message.redirect(OutputSink.of(writer));
+            try {
+                export(view);
+            } finally {
+                Message.redirect(previous);
+            }
+        } catch (IOException | UncheckedIOException | InvalidPathException e) {
+            Message.EXPORT_FAILED.error(path);
         }
+    }
 
+    private static void export(GraphView view) {
+        Message.DIGRAPH_START.print();
+        EdgeOrder.forEachSorted(view, e -> Message.ECHO.print(e.getDotString()));
+        for (Category c : view.getCategories()) {
+            Message.DIGRAPH_SHAPE.print(c.getCanonicalName());
+        }
         Message.DIGRAPH_END.print();
     }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
 }
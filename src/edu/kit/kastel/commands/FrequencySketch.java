@@ -0,0 +1,103 @@
+package edu.kit.kastel.commands;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Approximate access frequencies of keys, together with the most frequently accessed keys.
+ *
+ * <p>
+ * The frequencies are counted in a count-min sketch: an access increments one counter in each of a few rows, selected by differently
+ * mixed hashes of the key, and the frequency of a key is estimated by the smallest of its counters. The sketch has a fixed size however
+ * many keys are counted. After a fixed number of accesses all counters are halved, so the estimates follow recent traffic. The keys with
+ * the highest estimates are kept next to the sketch, a key replacing the coldest of them once its estimate exceeds it.
+ * </p>
+ *
+ * @param <K> the type of the keys.
+ * @author uupyx
+ */
+final class FrequencySketch<K> {
+
+    private static final int ROWS = 4;
+    private static final int COLUMN_BITS = 12;
+    private static final int COLUMNS = 1 << COLUMN_BITS;
+    private static final int SAMPLE_SIZE = 10 * COLUMNS;
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private final int[][] counters;
+    private final Map<K, Integer> hottest;
+    private final int capacity;
+    private int accesses;
+
+    /**
+     * Constructs an empty FrequencySketch.
+     *
+     * @param capacity the maximum number of hottest keys to keep.
+     */
+    FrequencySketch(int capacity) {
+        this.counters = new int[ROWS][COLUMNS];
+        this.hottest = new HashMap<>();
+        this.capacity = capacity;
+    }
+
+    /**
+     * Counts an access to a key.
+     *
+     * @param key the key.
+     * @return true if the key became one of the hottest keys, replacing another one if necessary.
+     */
+    synchronized boolean increment(K key) {
+        int hash = key.hashCode();
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < ROWS; row++) {
+            int column = (hash * SEEDS[row]) >>> (Integer.SIZE - COLUMN_BITS);
+            estimate = Math.min(estimate, ++counters[row][column]);
+        }
+        boolean admitted = admit(key, estimate);
+        if (++accesses == SAMPLE_SIZE) {
+            age();
+        }
+        return admitted;
+    }
+
+    /**
+     * Returns the hottest keys.
+     *
+     * @return a copy of the hottest keys, in no particular order.
+     */
+    synchronized List<K> getHottest() {
+        return new ArrayList<>(hottest.keySet());
+    }
+
+    private boolean admit(K key, int estimate) {
+        if (hottest.containsKey(key) || (hottest.size() < capacity)) {
+            return hottest.put(key, estimate) == null;
+        }
+        K coldest = null;
+        int minimum = estimate;
+        for (Map.Entry<K, Integer> entry : hottest.entrySet()) {
+            if (entry.getValue() < minimum) {
+                coldest = entry.getKey();
+                minimum = entry.getValue();
+            }
+        }
+        if (coldest == null) {
+            return false;
+        }
+        hottest.remove(coldest);
+        hottest.put(key, estimate);
+        return true;
+    }
+
+    private void age() {
+        for (int[] row : counters) {
+            for (int column = 0; column < COLUMNS; column++) {
+                row[column] >>>= 1;
+            }
+        }
+        hottest.replaceAll((key, estimate) -> estimate >>> 1);
+        accesses = 0;
+    }
+}
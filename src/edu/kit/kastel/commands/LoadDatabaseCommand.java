@@ -1,20 +1,41 @@
 package edu.kit.kastel.commands;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 import edu.kit.kastel.Message;
 import edu.kit.kastel.model.Edge;
 import edu.kit.kastel.model.Graph;
+import edu.kit.kastel.ui.ChunkedDatabaseParser;
+import edu.kit.kastel.ui.DatabaseReader;
 import edu.kit.kastel.ui.EdgeParser;
 
 /**
  * Command to load a database.
  *
+ * <p>
+ * Syntax: {@code load database [--no-echo] [--parallel] <path>}. The file is read in a single streaming pass. By default its content is
+ * echoed, the {@code --no-echo} option suppresses the echo for large inputs.
+ * </p>
+ *
+ * <p>
+ * With {@code --parallel} the file is parsed in chunks on one thread per available processor. Every parsed chunk is echoed and merged
+ * into the graph in file order as soon as it is ready, with one bulk addition per chunk, see {@link Graph#addEdges(List)}, and dropped
+ * afterwards. The first error is reported and inverse edges and ids are handled exactly as in a sequential load.
+ * </p>
+ *
+ * <p>
+ * {@code reload database} takes the same options, but instead of rebuilding the graph it collects the edges of the file, computes their
+ * difference to the current graph and applies only the additions and removals as one batch, see {@link Graph#diff(java.util.Collection)}.
+ * Unchanged parts of the graph keep their cached closures, and an invalid file leaves the graph untouched. The removals are applied
+ * before the additions, so a product the file renames loses all its edges first and the file's name is listed for its id, as after a
+ * fresh load. Only if the file uses both names for one id does the node already in the graph stay listed under that id.
+ * </p>
+ *
  * @author uupyx
  */
 public class LoadDatabaseCommand implements Command {
@@ -22,9 +43,14 @@ public class LoadDatabaseCommand implements Command {
     private static final String SPACE_REGEX = "\\s+";
     private static final int MINIMUM_PARTS_LENGTH = 3;
     private static final int PATH_INDEX = 2;
+    private static final int OPTION_PARTS_LENGTH = 2;
+    private static final String OPTION_PREFIX = "--";
+    private static final String OPTION_NO_ECHO = "--no-echo";
+    private static final String OPTION_PARALLEL = "--parallel";
 
     private final Graph graph;
     private final String command;
+    private final boolean reload;
 
     /**
      * Constructs a LoadDatabaseCommand.
@@ -33,8 +59,20 @@ public class LoadDatabaseCommand implements Command {
      * @param command the command string.
      */
     public LoadDatabaseCommand(Graph graph, String command) {
+        this(graph, command, false);
+    }
+
+    /**
+     * Constructs a LoadDatabaseCommand.
+     *
+     * @param graph the graph.
+     * @param command the command string.
+     * @param reload true to apply only the difference between the file and the graph.
+     */
+    public LoadDatabaseCommand(Graph graph, String command, boolean reload) {
         this.graph = graph;
         this.command = command;
+        this.reload = reload;
     }
 
     /**
@@ -49,41 +87,125 @@ public class LoadDatabaseCommand implements Command {
         }
 
         String path = parts[PATH_INDEX];
+        boolean echo = true;
+        boolean parallel = false;
+        while (path.startsWith(OPTION_PREFIX)) {
+            String[] option = path.split(SPACE_REGEX, OPTION_PARTS_LENGTH);
+            if (option[0].equals(OPTION_NO_ECHO)) {
+                echo = false;
+            } else if (option[0].equals(OPTION_PARALLEL)) {
+                parallel = true;
+            } else {
+                break;
+            }
+            if (option.length < OPTION_PARTS_LENGTH) {
+                Message.FILE_PATH_REQUIRED.error();
+                return;
+            }
+            path = option[1];
+        }
+
         Path file = Paths.get(path);
         if (!Files.exists(file) || Files.isDirectory(file)) {
             Message.FILE_DOES_NOT_EXIST.error();
             return;
         }
 
-        graph.reset();
+        if (!reload) {
+            graph.reset();
+        }
 
+        Loader loader = new Loader();
         try {
-            Message.ECHO.print(Files.readString(file));
+            if (parallel) {
+                loadParallel(file, echo, loader);
+            } else {
+                DatabaseReader.read(file, echo, loader);
+            }
         } catch (IOException e) {
             Message.ERROR.error(e.getMessage());
             return;
         }
 
-        try (BufferedReader br = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                Edge edge = EdgeParser.parse(line);
-                if (edge == null) {
-                    Message.INVALID_FORMAT.error(line);
-                    return;
-                }
+        if (loader.failure != null) {
+            loader.failure.error(loader.failedLine);
+            return;
+        }
+        if (reload && (graph.apply(graph.diff(loader.collected)) >= 0)) {
+            Message.INVALID_RELATIONSHIP.error();
+            return;
+        }
+
+        graph.freeze();
+        graph.setLoaded(true);
+        graph.materialize();
+    }
 
-                if (!graph.addEdge(edge)) {
-                    Message.INVALID_RELATIONSHIP.error();
-                    return;
-                }
+    private static void loadParallel(Path file, boolean echo, Loader loader) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean[] terminated = {true};
+        ChunkedDatabaseParser.parse(file, threads, echo, chunk -> {
+            if (echo) {
+                Message.ECHO.print(chunk.getText());
+            }
+            terminated[0] = chunk.isTerminated();
+            loader.merge(chunk);
+            return echo || (loader.failure == null);
+        });
+        if (echo && terminated[0]) {
+            Message.ECHO.print("");
+        }
+    }
 
+    /**
+     * Adds every line to the graph, or collects it when reloading, until the first invalid line and remembers why loading failed.
+     */
+    private final class Loader implements DatabaseReader.LineConsumer {
+        private final List<Edge> collected = new ArrayList<>();
+        private Message failure;
+        private String failedLine;
+
+        @Override
+        public boolean accept(CharSequence line) {
+            Edge edge = EdgeParser.parse(line);
+            if (edge == null) {
+                reject(line.toString());
+                return false;
             }
-        } catch (IOException e) {
-            Message.ERROR.error(e.getMessage());
-            return;
+            return add(edge);
         }
 
-        graph.setLoaded(true);
+        boolean add(Edge edge) {
+            if (reload) {
+                collected.add(edge);
+                return true;
+            }
+            if (!graph.addEdge(edge)) {
+                failure = Message.INVALID_RELATIONSHIP;
+                return false;
+            }
+            return true;
+        }
+
+        void merge(ChunkedDatabaseParser.Chunk chunk) {
+            if (failure != null) {
+                return;
+            }
+            List<Edge> edges = chunk.getEdges();
+            if (reload) {
+                collected.addAll(edges);
+            } else if (graph.addEdges(edges) < edges.size()) {
+                failure = Message.INVALID_RELATIONSHIP;
+                return;
+            }
+            if (chunk.getInvalidLine() != null) {
+                reject(chunk.getInvalidLine());
+            }
+        }
+
+        void reject(String line) {
+            failure = Message.INVALID_FORMAT;
+            failedLine = line;
+        }
     }
 }
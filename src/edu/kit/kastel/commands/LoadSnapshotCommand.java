@@ -0,0 +1,72 @@
+package edu.kit.kastel.commands;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import edu.kit.kastel.Message;
+import edu.kit.kastel.model.Graph;
+import edu.kit.kastel.model.GraphSnapshot;
+
+/**
+ * Command to replace the graph with the content of a binary snapshot file.
+ *
+ * @author uupyx
+ */
+public class LoadSnapshotCommand implements Command {
+
+    private static final String SPACE_REGEX = "\\s+";
+    private static final int MINIMUM_PARTS_LENGTH = 3;
+    private static final int PATH_INDEX = 2;
+
+    private final Graph graph;
+    private final String command;
+
+    /**
+     * Constructs a LoadSnapshotCommand.
+     *
+     * @param graph the graph.
+     * @param command the command string.
+     */
+    public LoadSnapshotCommand(Graph graph, String command) {
+        this.graph = graph;
+        this.command = command;
+    }
+
+    /**
+     * Executes the load snapshot command.
+     */
+    @Override
+    public void execute() {
+        String[] parts = command.split(SPACE_REGEX, MINIMUM_PARTS_LENGTH);
+        if (parts.length < MINIMUM_PARTS_LENGTH) {
+            Message.SNAPSHOT_PATH_REQUIRED.error();
+            return;
+        }
+
+        Path file;
+        try {
+            file = Paths.get(parts[PATH_INDEX]);
+        } catch (InvalidPathException e) {
+            Message.SNAPSHOT_DOES_NOT_EXIST.error();
+            return;
+        }
+        if (!Files.exists(file) || Files.isDirectory(file)) {
+            Message.SNAPSHOT_DOES_NOT_EXIST.error();
+            return;
+        }
+
+        try {
+            GraphSnapshot.read(file, graph);
+        } catch (IOException e) {
+            Message.ERROR.error(e.getMessage());
+            return;
+        }
+
+        graph.freeze();
+        graph.setLoaded(true);
+        graph.materialize();
+    }
+}
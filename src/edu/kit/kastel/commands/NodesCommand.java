@@ -5,23 +5,42 @@ import edu.kit.kastel.model.Graph;
 import edu.kit.kastel.model.Node;
 
 /**
- * Command to display all nodes.
+ * Command to display all nodes, or one page of them.
+ *
+ * <p>
+ * With an offset and a limit, e.g. {@code nodes 100 50}, only the nodes at these positions of the sorted listing are displayed. The graph
+ * keeps its nodes ranked by position, so a page is read without sorting and without skipping the nodes before the offset.
+ * </p>
  *
  * @author uupyx
  */
 public class NodesCommand implements Command {
 
     private static final String SPACE = " ";
+    private static final String ARGUMENT_SEPARATOR = "\\s+";
+    private static final int ARGUMENT_COUNT = 2;
 
     private final Graph graph;
+    private final String arguments;
 
     /**
-     * Constructs a NodesCommand.
+     * Constructs a NodesCommand listing all nodes.
      *
      * @param graph the graph.
      */
     public NodesCommand(Graph graph) {
+        this(graph, "");
+    }
+
+    /**
+     * Constructs a NodesCommand.
+     *
+     * @param graph the graph.
+     * @param arguments the offset and the limit of the page, or an empty string to list all nodes.
+     */
+    public NodesCommand(Graph graph, String arguments) {
         this.graph = graph;
+        this.arguments = arguments;
     }
 
     /**
@@ -29,11 +48,37 @@ public class NodesCommand implements Command {
      */
     @Override
     public void execute() {
+        long offset = 0;
+        long limit = Long.MAX_VALUE;
+        if (!arguments.isEmpty()) {
+            String[] parts = arguments.split(ARGUMENT_SEPARATOR);
+            if (parts.length != ARGUMENT_COUNT) {
+                Message.INVALID_SYNTAX_NODES.error();
+                return;
+            }
+            try {
+                offset = Long.parseLong(parts[0]);
+                limit = Long.parseLong(parts[1]);
+            } catch (NumberFormatException e) {
+                Message.INVALID_SYNTAX_NODES.error();
+                return;
+            }
+            if ((offset < 0) || (limit < 0)) {
+                Message.INVALID_SYNTAX_NODES.error();
+                return;
+            }
+        }
+
         StringBuilder sb = new StringBuilder();
-        for (Node n : graph.getNodes()) {
+        for (Node n : graph.view().getNodes(offset, limit)) {
             sb.append(n.getDisplayName()).append(SPACE);
         }
 
         Message.ECHO.print(sb.toString().trim());
     }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
 }
@@ -1,12 +1,17 @@
 package edu.kit.kastel.commands;
 
+import java.util.Collections;
 import java.util.Comparator;
-import java.util.Set;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.TreeSet;
 
 import edu.kit.kastel.Message;
+import edu.kit.kastel.model.FinalTerm;
 import edu.kit.kastel.model.Graph;
+import edu.kit.kastel.model.GraphView;
 import edu.kit.kastel.model.Product;
+import edu.kit.kastel.model.ProductSet;
 import edu.kit.kastel.model.Term;
 import edu.kit.kastel.ui.ParseException;
 import edu.kit.kastel.ui.RecommendationParser;
@@ -14,11 +19,43 @@ import edu.kit.kastel.ui.RecommendationParser;
 /**
  * Command to evaluate recommendation expressions.
  *
+ * <p>
+ * The printed output of recently evaluated expressions is kept in a bounded LRU cache together with the graph version it was computed
+ * on. A repeated expression is answered from the cache as long as the graph has not been modified since.
+ * </p>
+ *
+ * <p>
+ * An expression prefixed with {@code top <k>} prints only the k most relevant products, best first, instead of all products in name
+ * order. The relevance is the score of {@link Term#score(GraphView)}.
+ * </p>
+ *
+ * <p>
+ * Every query of an unbounded strategy is counted in a frequency sketch. The strategies queried most often are handed to the graph as
+ * its hot terms, whose results it keeps materialized across modifications that do not affect them.
+ * </p>
+ *
  * @author uupyx
  */
 public class RecommendCommand implements Command {
 
     private static final String SPACE = " ";
+    private static final String KEYWORD_TOP = "top ";
+    private static final String ERR_INVALID_LIMIT = "Invalid number of products %s";
+    private static final int HOT_TERMS = 64;
+    private static final int MAXIMUM_LIMIT = 1 << 20;
+    private static final int RESULT_CACHE_SIZE = 4096;
+    private static final int INITIAL_CACHE_CAPACITY = 16;
+    private static final float CACHE_LOAD_FACTOR = 0.75f;
+
+    private static final Map<String, CachedResult> RESULTS = Collections.synchronizedMap(
+            new LinkedHashMap<>(INITIAL_CACHE_CAPACITY, CACHE_LOAD_FACTOR, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+                    return size() > RESULT_CACHE_SIZE;
+                }
+            });
+
+    private static final FrequencySketch<FinalTerm> QUERIES = new FrequencySketch<>(HOT_TERMS);
 
     private final Graph graph;
     private final String expression;
@@ -39,19 +76,104 @@ public class RecommendCommand implements Command {
      */
     @Override
     public void execute() {
+        String key = RecommendationParser.normalize(expression);
+        GraphView view = graph.view();
+        long version = view.getVersion();
+        CachedResult cached = RESULTS.get(key);
+        if ((cached != null) && (cached.version == version)) {
+            record(cached.term);
+            Message.ECHO.print(cached.output);
+            return;
+        }
         try {
-            RecommendationParser parser = new RecommendationParser(expression);
-            Term term = parser.parse();
-            Set<Product> result = term.evaluate(graph);
-            TreeSet<Product> sorted = new TreeSet<>(Comparator.comparing(p -> p.name.toLowerCase()));
-            sorted.addAll(result);
-            StringBuilder sb = new StringBuilder();
-            for (Product p : sorted) {
-                sb.append(p.getDisplayName()).append(SPACE);
+            Term term;
+            String output;
+            if (key.startsWith(KEYWORD_TOP)) {
+                String arguments = key.substring(KEYWORD_TOP.length());
+                int split = arguments.indexOf(SPACE);
+                int limit = parseLimit((split < 0) ? arguments : arguments.substring(0, split));
+                term = RecommendationParser.compile((split < 0) ? "" : arguments.substring(split + 1));
+                record(term);
+                output = evaluateTop(view, term, limit);
+            } else {
+                term = RecommendationParser.compile(key);
+                record(term);
+                output = evaluate(view, term);
             }
-            Message.ECHO.print(sb.toString().trim());
+            RESULTS.put(key, new CachedResult(version, output, term));
+            Message.ECHO.print(output);
         } catch (ParseException pe) {
             Message.ERROR.error(pe.getMessage());
         }
     }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    /**
+     * Counts a query of every unbounded strategy of a term and hands the strategies queried most often to the graph for
+     * materialization.
+     */
+    private void record(Term term) {
+        boolean[] changed = {false};
+        term.forEachFinalTerm(strategy -> {
+            if (strategy.getDepth() == FinalTerm.UNBOUNDED) {
+                changed[0] |= QUERIES.increment(strategy);
+            }
+        });
+        if (changed[0]) {
+            graph.setHotTerms(QUERIES.getHottest());
+        }
+    }
+
+    private static String evaluate(GraphView view, Term term) throws ParseException {
+        ProductSet result = term.evaluate(view);
+        TreeSet<Product> sorted = new TreeSet<>(Comparator.comparing(Product::getCanonicalName));
+        for (int i = result.nextIndex(0); i >= 0; i = result.nextIndex(i + 1)) {
+            sorted.add(ProductSet.getProduct(view, i));
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Product p : sorted) {
+            sb.append(p.getDisplayName()).append(SPACE);
+        }
+        return sb.toString().trim();
+    }
+
+    private static String evaluateTop(GraphView view, Term term, int limit) throws ParseException {
+        StringBuilder sb = new StringBuilder();
+        for (int index : term.score(view).top(view, limit)) {
+            sb.append(ProductSet.getProduct(view, index).getDisplayName()).append(SPACE);
+        }
+        return sb.toString().trim();
+    }
+
+    private static int parseLimit(String argument) throws ParseException {
+        int limit;
+        try {
+            limit = Integer.parseInt(argument);
+        } catch (NumberFormatException e) {
+            throw new ParseException(String.format(ERR_INVALID_LIMIT, argument));
+        }
+        if ((limit <= 0) || (limit > MAXIMUM_LIMIT)) {
+            throw new ParseException(String.format(ERR_INVALID_LIMIT, argument));
+        }
+        return limit;
+    }
+
+    /**
+     * Printed output of an expression, the graph version it was computed on and the evaluated term.
+     */
+    private static final class CachedResult {
+        private final long version;
+        private final String output;
+        private final Term term;
+
+        CachedResult(long version, String output, Term term) {
+            this.version = version;
+            this.output = output;
+            this.term = term;
+        }
+    }
 }
@@ -0,0 +1,53 @@
+package edu.kit.kastel.commands;
+
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+
+import edu.kit.kastel.Message;
+import edu.kit.kastel.model.Graph;
+import edu.kit.kastel.model.GraphSnapshot;
+
+/**
+ * Command to save the graph into a binary snapshot file.
+ *
+ * @author uupyx
+ */
+public class SaveSnapshotCommand implements Command {
+
+    private static final String SPACE_REGEX = "\\s+";
+    private static final int MINIMUM_PARTS_LENGTH = 3;
+    private static final int PATH_INDEX = 2;
+
+    private final Graph graph;
+    private final String command;
+
+    /**
+     * Constructs a SaveSnapshotCommand.
+     *
+     * @param graph the graph.
+     * @param command the command string.
+     */
+    public SaveSnapshotCommand(Graph graph, String command) {
+        this.graph = graph;
+        this.command = command;
+    }
+
+    /**
+     * Executes the save snapshot command.
+     */
+    @Override
+    public void execute() {
+        String[] parts = command.split(SPACE_REGEX, MINIMUM_PARTS_LENGTH);
+        if (parts.length < MINIMUM_PARTS_LENGTH) {
+            Message.SNAPSHOT_PATH_REQUIRED.error();
+            return;
+        }
+
+        try {
+            GraphSnapshot.write(graph, Paths.get(parts[PATH_INDEX]));
+        } catch (IOException | InvalidPathException e) {
+            Message.ERROR.error(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package edu.kit.kastel.model;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * An ordered sequence of edge additions and removals that is applied to a graph as a single modification, see
+ * {@link Graph#apply(Batch)}.
+ *
+ * @author uupyx
+ */
+public final class Batch {
+
+    private final List<Edge> edges = new ArrayList<>();
+    private final BitSet removals = new BitSet();
+
+    /**
+     * Appends the addition of an edge.
+     *
+     * @param e the edge to add.
+     */
+    public void add(Edge e) {
+        edges.add(e);
+    }
+
+    /**
+     * Appends the removal of an edge.
+     *
+     * @param e the edge to remove.
+     */
+    public void remove(Edge e) {
+        removals.set(edges.size());
+        edges.add(e);
+    }
+
+    /**
+     * Returns the number of changes.
+     *
+     * @return the number of changes.
+     */
+    public int size() {
+        return edges.size();
+    }
+
+    /**
+     * Returns the edge of a change.
+     *
+     * @param index the position of the change.
+     * @return the edge added or removed by the change.
+     */
+    public Edge getEdge(int index) {
+        return edges.get(index);
+    }
+
+    /**
+     * Checks whether a change removes its edge.
+     *
+     * @param index the position of the change.
+     * @return true for a removal, false for an addition.
+     */
+    public boolean isRemoval(int index) {
+        return removals.get(index);
+    }
+}
@@ -23,7 +23,7 @@ public class Category extends Node {
      */
     @Override
     public String getDisplayName() {
-        return name.toLowerCase();
+        return canonicalName;
     }
 
     /**
@@ -33,7 +33,7 @@ public class Category extends Node {
      */
     @Override
     public String getSortKey() {
-        return name.toLowerCase();
+        return canonicalName;
     }
 
     @Override
@@ -50,11 +50,11 @@ public class Category extends Node {
             return false;
         }
         Category c = (Category) o;
-        return name.equalsIgnoreCase(c.name);
+        return canonicalName.equals(c.canonicalName);
     }
 
     @Override
     public int hashCode() {
-        return name.toLowerCase().hashCode();
+        return canonicalName.hashCode();
     }
 }
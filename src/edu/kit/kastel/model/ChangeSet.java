@@ -0,0 +1,146 @@
+package edu.kit.kastel.model;
+
+import java.util.BitSet;
+
+/**
+ * Modifications of a graph since its compiled form was last published.
+ *
+ * <p>
+ * For every predicate the source nodes of the added and removed edges are recorded, together with the released node indices and whether
+ * nodes were added or released, or listed or unlisted. The next compiled form shares everything these modifications did not touch with
+ * the previous one, including the cached closures and memberships they do not affect, so publishing a small modification costs little
+ * more than the modification itself.
+ * </p>
+ *
+ * @author uupyx
+ */
+final class ChangeSet {
+
+    private final BitSet[] sources;
+    private final BitSet released;
+    private boolean nodes;
+    private boolean listing;
+    private boolean complete;
+
+    /**
+     * Constructs an empty ChangeSet.
+     */
+    ChangeSet() {
+        this.sources = new BitSet[Predicate.values().length];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = new BitSet();
+        }
+        this.released = new BitSet();
+    }
+
+    /**
+     * Records that an edge was added or removed.
+     *
+     * @param predicate the predicate of the edge.
+     * @param source the source node index of the edge.
+     */
+    void edge(Predicate predicate, int source) {
+        sources[predicate.ordinal()].set(source);
+    }
+
+    /**
+     * Records that edges were added or removed.
+     *
+     * @param changedSources the source node indices of the changed edges per predicate ordinal.
+     */
+    void edges(BitSet[] changedSources) {
+        for (int i = 0; i < sources.length; i++) {
+            sources[i].or(changedSources[i]);
+        }
+    }
+
+    /**
+     * Records that a node was given an index.
+     */
+    void node() {
+        nodes = true;
+    }
+
+    /**
+     * Records that the index of a node was released.
+     *
+     * @param index the node index.
+     */
+    void release(int index) {
+        nodes = true;
+        released.set(index);
+    }
+
+    /**
+     * Records that a node was listed or unlisted.
+     */
+    void listing() {
+        listing = true;
+    }
+
+    /**
+     * Records that the whole graph was replaced, so nothing can be shared with the previous compiled form.
+     */
+    void all() {
+        complete = true;
+    }
+
+    /**
+     * Forgets all modifications, because the current version was compiled.
+     */
+    void clear() {
+        for (BitSet changed : sources) {
+            changed.clear();
+        }
+        released.clear();
+        nodes = false;
+        listing = false;
+        complete = false;
+    }
+
+    /**
+     * Returns the source node indices of the changed edges with a predicate.
+     *
+     * @param predicate the predicate.
+     * @return the indices, backed by this set.
+     */
+    BitSet getSources(Predicate predicate) {
+        return sources[predicate.ordinal()];
+    }
+
+    /**
+     * Returns the released node indices.
+     *
+     * @return the indices, backed by this set.
+     */
+    BitSet getReleased() {
+        return released;
+    }
+
+    /**
+     * Checks whether a node was given an index or its index was released.
+     *
+     * @return true if the node table changed.
+     */
+    boolean hasNodeChanges() {
+        return nodes;
+    }
+
+    /**
+     * Checks whether a node was listed or unlisted.
+     *
+     * @return true if the listed nodes changed.
+     */
+    boolean hasListingChanges() {
+        return listing;
+    }
+
+    /**
+     * Checks whether the whole graph was replaced.
+     *
+     * @return true if nothing can be shared with the previous compiled form.
+     */
+    boolean isComplete() {
+        return complete;
+    }
+}
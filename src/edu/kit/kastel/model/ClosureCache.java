@@ -0,0 +1,227 @@
+package edu.kit.kastel.model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Cache of transitive closures, i.e. of all products reachable from a node by following edges with one predicate.
+ *
+ * <p>
+ * Closures are computed by an iterative depth-first traversal and stored as sorted index arrays, least recently used first. The cache is
+ * bounded by the total number of stored indices. An edge {@code s -p-> t} can only change the closures for predicate {@code p} that start
+ * at {@code s} or already contain {@code s}, so only those are dropped when such an edge is added or removed.
+ * </p>
+ *
+ * @author uupyx
+ */
+final class ClosureCache {
+
+    private static final int MAXIMUM_CACHED_INDICES = 1 << 22;
+    private static final int INITIAL_STACK_SIZE = 16;
+    private static final int PREDICATE_SHIFT = 32;
+    private static final long INDEX_MASK = 0xFFFFFFFFL;
+
+    private final GraphView graph;
+    private final Map<Long, int[]> closures;
+    private final int[] entriesPerPredicate;
+    private int cachedIndices;
+
+    /**
+     * Constructs an empty ClosureCache.
+     *
+     * @param graph the view the closures are computed on.
+     */
+    ClosureCache(GraphView graph) {
+        this.graph = graph;
+        this.closures = new LinkedHashMap<>(INITIAL_STACK_SIZE, 0.75f, true);
+        this.entriesPerPredicate = new int[Predicate.values().length];
+    }
+
+    /**
+     * Returns the closure of a node, computing it if it is not cached.
+     *
+     * @param index the start node index.
+     * @param predicate the predicate to follow.
+     * @return the sorted indices of all reachable products. The array is shared and must not be modified.
+     */
+    synchronized int[] get(int index, Predicate predicate) {
+        long key = key(predicate, index);
+        int[] closure = closures.get(key);
+        if (closure == null) {
+            closure = compute(index, predicate);
+            closures.put(key, closure);
+            entriesPerPredicate[predicate.ordinal()]++;
+            cachedIndices += closure.length;
+            evict();
+        }
+        return closure;
+    }
+
+    /**
+     * Drops all closures for a predicate that start at or contain a node, because an edge with that predicate starting at the node was
+     * added or removed.
+     *
+     * @param predicate the predicate of the edge.
+     * @param index the source node index of the edge.
+     */
+    synchronized void invalidate(Predicate predicate, int index) {
+        if (entriesPerPredicate[predicate.ordinal()] == 0) {
+            return;
+        }
+        Iterator<Map.Entry<Long, int[]>> iterator = closures.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, int[]> entry = iterator.next();
+            long key = entry.getKey();
+            if ((predicateOrdinal(key) == predicate.ordinal())
+                    && ((startIndex(key) == index) || (Arrays.binarySearch(entry.getValue(), index) >= 0))) {
+                remove(iterator, entry);
+            }
+        }
+    }
+
+    /**
+     * Drops all closures for a predicate that start at or contain any of the given nodes, in a single pass over the cache.
+     *
+     * @param predicate the predicate of the changed edges.
+     * @param sources the source node indices of the changed edges.
+     */
+    synchronized void invalidate(Predicate predicate, BitSet sources) {
+        if ((entriesPerPredicate[predicate.ordinal()] == 0) || sources.isEmpty()) {
+            return;
+        }
+        Iterator<Map.Entry<Long, int[]>> iterator = closures.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, int[]> entry = iterator.next();
+            long key = entry.getKey();
+            if ((predicateOrdinal(key) == predicate.ordinal()) && (sources.get(startIndex(key)) || intersects(entry.getValue(), sources))) {
+                remove(iterator, entry);
+            }
+        }
+    }
+
+    /**
+     * Takes over the closures of the previous compiled form of the graph that the modifications since then did not affect, in their order
+     * of use. Has to be called before the cache is shared.
+     *
+     * @param previous the cache of the previous compiled form.
+     * @param changes the modifications since the previous compiled form.
+     */
+    synchronized void inherit(ClosureCache previous, ChangeSet changes) {
+        BitSet released = changes.getReleased();
+        Predicate[] predicates = Predicate.values();
+        synchronized (previous) {
+            for (Map.Entry<Long, int[]> entry : previous.closures.entrySet()) {
+                long key = entry.getKey();
+                int[] closure = entry.getValue();
+                BitSet changed = changes.getSources(predicates[predicateOrdinal(key)]);
+                if (changed.get(startIndex(key)) || released.get(startIndex(key)) || intersects(closure, changed)
+                        || intersects(closure, released)) {
+                    continue;
+                }
+                closures.put(key, closure);
+                entriesPerPredicate[predicateOrdinal(key)]++;
+                cachedIndices += closure.length;
+            }
+        }
+    }
+
+    /**
+     * Drops all closures starting at or containing a node whose index is released.
+     *
+     * @param index the node index.
+     */
+    synchronized void forget(int index) {
+        for (Predicate predicate : Predicate.values()) {
+            invalidate(predicate, index);
+        }
+    }
+
+    /**
+     * Drops all closures.
+     */
+    synchronized void clear() {
+        closures.clear();
+        Arrays.fill(entriesPerPredicate, 0);
+        cachedIndices = 0;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Long, int[]>> iterator = closures.entrySet().iterator();
+        while ((cachedIndices > MAXIMUM_CACHED_INDICES) && iterator.hasNext()) {
+            remove(iterator, iterator.next());
+        }
+    }
+
+    private void remove(Iterator<Map.Entry<Long, int[]>> iterator, Map.Entry<Long, int[]> entry) {
+        entriesPerPredicate[predicateOrdinal(entry.getKey())]--;
+        cachedIndices -= entry.getValue().length;
+        iterator.remove();
+    }
+
+    private int[] compute(int start, Predicate predicate) {
+        Traversal traversal = new Traversal();
+        traversal.visited.set(start);
+        traversal.push(start);
+        while (traversal.size > 0) {
+            graph.forEachNeighbour(traversal.stack[--traversal.size], predicate, traversal);
+        }
+        return traversal.reached.stream().toArray();
+    }
+
+    private static boolean intersects(int[] closure, BitSet indices) {
+        if (indices.isEmpty()) {
+            return false;
+        }
+        for (int index : closure) {
+            if (indices.get(index)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long key(Predicate predicate, int index) {
+        return ((long) predicate.ordinal() << PREDICATE_SHIFT) | (index & INDEX_MASK);
+    }
+
+    private static int predicateOrdinal(long key) {
+        return (int) (key >>> PREDICATE_SHIFT);
+    }
+
+    private static int startIndex(long key) {
+        return (int) (key & INDEX_MASK);
+    }
+
+    /**
+     * State of an iterative depth-first traversal, receiving the neighbours of the node taken from the stack.
+     */
+    private final class Traversal implements IntConsumer {
+        private final BitSet visited = new BitSet();
+        private final BitSet reached = new BitSet();
+        private int[] stack = new int[INITIAL_STACK_SIZE];
+        private int size;
+
+        @Override
+        public void accept(int neighbour) {
+            if (!(graph.getNode(neighbour) instanceof Product)) {
+                return;
+            }
+            reached.set(neighbour);
+            if (!visited.get(neighbour)) {
+                visited.set(neighbour);
+                push(neighbour);
+            }
+        }
+
+        void push(int index) {
+            if (size == stack.length) {
+                stack = Arrays.copyOf(stack, size * 2);
+            }
+            stack[size++] = index;
+        }
+    }
+}
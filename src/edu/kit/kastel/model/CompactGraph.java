@@ -0,0 +1,302 @@
+package edu.kit.kastel.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable, read-optimized graph in compressed sparse row layout.
+ *
+ * <p>
+ * For every primary predicate the targets of all edges are stored in one int array, grouped by source node, with an offset array marking
+ * where the targets of each node start. The same is stored transposed, which yields the edges of the inverse predicate, so inverse edges
+ * cost no extra objects. Traversing a node touches two array slots and a contiguous run of ints instead of a hash set of edge objects.
+ * </p>
+ *
+ * <p>
+ * All state is fixed at construction and the caches are synchronized, so a CompactGraph can be shared by any number of threads.
+ * </p>
+ *
+ * @author uupyx
+ */
+public final class CompactGraph implements GraphView {
+
+    private static final int PREDICATE_COUNT = Predicate.values().length;
+
+    private final Node[] nodes;
+    private final int[] order;
+    private final SortedSet<Node> listed;
+    private final Node[] ranked;
+    private final SortedSet<Category> categories;
+    private final Map<Node, Integer> indices;
+    private final Map<Integer, Product> productsById;
+    private final int[][] offsets;
+    private final int[][] targets;
+    private final int edgeCount;
+    private final ClosureCache closures;
+    private final MembershipIndex memberships;
+    private final Materializer materializer;
+    private final long version;
+
+    /**
+     * Constructs a CompactGraph from the edges of the primary predicates. The arrays are taken over, not copied.
+     *
+     * @param nodes the nodes by index, null for unused indices.
+     * @param order the indices of all nodes in ascending order of their sort keys.
+     * @param listed the nodes listed under their names, sorted by name.
+     * @param categories the listed categories, sorted by name.
+     * @param productsById the listed products by id.
+     * @param primaryOffsets the row offsets per primary predicate ordinal, each of length {@code nodes.length + 1}.
+     * @param primaryTargets the target indices per primary predicate ordinal.
+     * @param materializer the materialized results of the graph.
+     * @param version the modification version of the compiled graph.
+     */
+    CompactGraph(Node[] nodes, int[] order, SortedSet<Node> listed, SortedSet<Category> categories, Map<Integer, Product> productsById,
+            int[][] primaryOffsets, int[][] primaryTargets, Materializer materializer, long version) {
+        this(null, null, nodes, order, listed, categories, productsById, primaryOffsets, primaryTargets, materializer, version);
+    }
+
+    /**
+     * Constructs the next version of a compiled graph. Every part the modifications since the previous version did not change is shared
+     * with it, and so are the cached closures and memberships they did not affect. The arrays are taken over, not copied.
+     *
+     * @param previous the previous version, or null to share nothing.
+     * @param changes the modifications since the previous version, or null to share nothing.
+     * @param nodes the nodes by index, null for unused indices, or null if no node was added or released.
+     * @param order the indices of all nodes in ascending order of their sort keys, or null if no node was added or released.
+     * @param listed the nodes listed under their names, sorted by name, or null if no node was listed or unlisted.
+     * @param categories the listed categories, sorted by name, or null if no node was listed or unlisted.
+     * @param productsById the listed products by id, or null if no node was listed or unlisted.
+     * @param primaryOffsets the row offsets per primary predicate ordinal, each of length {@code nodes.length + 1}, or null for a predicate
+     *            whose edges did not change.
+     * @param primaryTargets the target indices per primary predicate ordinal, or null for a predicate whose edges did not change.
+     * @param materializer the materialized results of the graph.
+     * @param version the modification version of the compiled graph.
+     */
+    CompactGraph(CompactGraph previous, ChangeSet changes, Node[] nodes, int[] order, SortedSet<Node> listed,
+            SortedSet<Category> categories, Map<Integer, Product> productsById, int[][] primaryOffsets, int[][] primaryTargets,
+            Materializer materializer, long version) {
+        this.materializer = materializer;
+        this.version = version;
+        if (nodes == null) {
+            this.nodes = previous.nodes;
+            this.order = previous.order;
+            this.indices = previous.indices;
+        } else {
+            this.nodes = nodes;
+            this.order = order;
+            this.indices = new HashMap<>();
+            for (int i = 0; i < nodes.length; i++) {
+                if (nodes[i] != null) {
+                    indices.put(nodes[i], i);
+                }
+            }
+        }
+        if (listed == null) {
+            this.listed = previous.listed;
+            this.ranked = previous.ranked;
+            this.categories = previous.categories;
+            this.productsById = previous.productsById;
+        } else {
+            this.listed = Collections.unmodifiableSortedSet(new TreeSet<>(listed));
+            this.ranked = this.listed.toArray(new Node[0]);
+            this.categories = Collections.unmodifiableSortedSet(new TreeSet<>(categories));
+            this.productsById = Map.copyOf(productsById);
+        }
+
+        this.offsets = new int[PREDICATE_COUNT][];
+        this.targets = new int[PREDICATE_COUNT][];
+        int count = 0;
+        for (Predicate predicate : Predicate.values()) {
+            if (predicate.isPrimary()) {
+                int primary = predicate.ordinal();
+                int inverse = predicate.getInverse().ordinal();
+                if (primaryOffsets[primary] == null) {
+                    offsets[primary] = extend(previous.offsets[primary], this.nodes.length + 1);
+                    targets[primary] = previous.targets[primary];
+                    offsets[inverse] = extend(previous.offsets[inverse], this.nodes.length + 1);
+                    targets[inverse] = previous.targets[inverse];
+                } else {
+                    offsets[primary] = primaryOffsets[primary];
+                    targets[primary] = primaryTargets[primary];
+                    offsets[inverse] = new int[this.nodes.length + 1];
+                    targets[inverse] = new int[targets[primary].length];
+                    transpose(offsets[primary], targets[primary], offsets[inverse], targets[inverse]);
+                }
+                count += 2 * targets[primary].length;
+            }
+        }
+        this.edgeCount = count;
+        this.closures = new ClosureCache(this);
+        this.memberships = new MembershipIndex(this);
+        if (previous != null) {
+            closures.inherit(previous.closures, changes);
+            memberships.inherit(previous.memberships, changes);
+        }
+    }
+
+    /**
+     * Returns row offsets for a larger number of nodes, the rows of the additional nodes being empty.
+     */
+    private static int[] extend(int[] rows, int length) {
+        if (rows.length == length) {
+            return rows;
+        }
+        int[] extended = Arrays.copyOf(rows, length);
+        Arrays.fill(extended, rows.length, length, rows[rows.length - 1]);
+        return extended;
+    }
+
+    /**
+     * Returns the nodes at a range of positions of a ranked listing.
+     *
+     * @param ranked the listed nodes by position.
+     * @param offset the position of the first node.
+     * @param limit the maximum number of nodes.
+     * @return read-only list of the nodes.
+     */
+    static List<Node> page(Node[] ranked, long offset, long limit) {
+        int from = (int) Math.min(offset, ranked.length);
+        int to = from + (int) Math.min(limit, ranked.length - from);
+        return Collections.unmodifiableList(Arrays.asList(ranked).subList(from, to));
+    }
+
+    /**
+     * Fills the row offsets and targets of the transposed adjacency with a counting sort.
+     */
+    private static void transpose(int[] offsets, int[] targets, int[] transposedOffsets, int[] transposedTargets) {
+        for (int target : targets) {
+            transposedOffsets[target + 1]++;
+        }
+        for (int i = 1; i < transposedOffsets.length; i++) {
+            transposedOffsets[i] += transposedOffsets[i - 1];
+        }
+        int[] next = new int[transposedOffsets.length - 1];
+        System.arraycopy(transposedOffsets, 0, next, 0, next.length);
+        for (int source = 0; source < offsets.length - 1; source++) {
+            for (int k = offsets[source]; k < offsets[source + 1]; k++) {
+                transposedTargets[next[targets[k]]++] = source;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of edges, inverse edges included.
+     *
+     * @return the edge count.
+     */
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    @Override
+    public int getIndexBound() {
+        return nodes.length;
+    }
+
+    @Override
+    public Node getNode(int index) {
+        return nodes[index];
+    }
+
+    @Override
+    public int indexOf(Node node) {
+        Integer index = indices.get(node);
+        return (index == null) ? -1 : index;
+    }
+
+    @Override
+    public Product getProductById(int id) {
+        return productsById.get(id);
+    }
+
+    @Override
+    public int getDegree(int index, Predicate predicate) {
+        int[] rows = offsets[predicate.ordinal()];
+        return rows[index + 1] - rows[index];
+    }
+
+    @Override
+    public void forEachNeighbour(int index, Predicate predicate, IntConsumer action) {
+        int[] rows = offsets[predicate.ordinal()];
+        int[] columns = targets[predicate.ordinal()];
+        for (int k = rows[index]; k < rows[index + 1]; k++) {
+            action.accept(columns[k]);
+        }
+    }
+
+    /**
+     * Checks whether an edge is present.
+     *
+     * @param source the source node index.
+     * @param predicate the predicate of the edge.
+     * @param target the target node index.
+     * @return true if the edge is present, false otherwise.
+     */
+    boolean hasEdge(int source, Predicate predicate, int target) {
+        int[] rows = offsets[predicate.ordinal()];
+        int[] columns = targets[predicate.ordinal()];
+        for (int k = rows[source]; k < rows[source + 1]; k++) {
+            if (columns[k] == target) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void forEachSortedIndex(IntConsumer action) {
+        for (int index : order) {
+            action.accept(index);
+        }
+    }
+
+    @Override
+    public int[] getClosure(int index, Predicate predicate) {
+        return closures.get(index, predicate);
+    }
+
+    @Override
+    public int[] getMembers(int index) {
+        return memberships.get(index);
+    }
+
+    @Override
+    public int[] getMaterialized(FinalTerm term) {
+        return materializer.get(this, term);
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public Set<Node> getNodes() {
+        return listed;
+    }
+
+    @Override
+    public List<Node> getNodes(long offset, long limit) {
+        return page(ranked, offset, limit);
+    }
+
+    @Override
+    public Set<Edge> getEdges() {
+        Set<Edge> sorted = new LinkedHashSet<>();
+        EdgeOrder.forEachSorted(this, sorted::add);
+        return sorted;
+    }
+
+    @Override
+    public Set<Category> getCategories() {
+        return categories;
+    }
+}
@@ -23,6 +23,8 @@ public class Edge {
     /** The predicate string. */
     public final Predicate predicate;
 
+    private final int hash;
+
     /**
      * Constructs an edge.
      *
@@ -34,6 +36,7 @@ public class Edge {
         this.source = source;
         this.target = target;
         this.predicate = predicate;
+        this.hash = Objects.hash(source, target, predicate);
     }
 
     /**
@@ -51,7 +54,7 @@ public class Edge {
      * @return DOT string.
      */
     public String getDotString() {
-        return source.name.toLowerCase() + DOT_ARROW + target.name.toLowerCase() + DOT_LABEL_PREFIX + predicate.getLabel()
+        return source.getCanonicalName() + DOT_ARROW + target.getCanonicalName() + DOT_LABEL_PREFIX + predicate.getLabel()
                 + DOT_LABEL_SUFFIX;
     }
 
@@ -73,11 +76,11 @@ public class Edge {
             return false;
         }
         Edge other = (Edge) o;
-        return source.equals(other.source) && target.equals(other.target) && predicate.equals(other.predicate);
+        return (hash == other.hash) && source.equals(other.source) && target.equals(other.target) && predicate.equals(other.predicate);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(source, target, predicate);
+        return hash;
     }
 }
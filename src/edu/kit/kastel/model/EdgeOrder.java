@@ -0,0 +1,58 @@
+package edu.kit.kastel.model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Utility class defining the display order of edges and streaming the edges of a graph in that order.
+ *
+ * <p>
+ * Edges are ordered by the sort keys of their source and target and then by predicate. Instead of collecting all edges into one sorted
+ * set, {@link #forEachSorted(GraphView, Consumer)} walks the nodes in the sort key order maintained by the graph and creates and sorts
+ * only the outgoing edges of one node at a time, so it needs memory proportional to the maximum degree.
+ * </p>
+ *
+ * @author uupyx
+ */
+public final class EdgeOrder {
+
+    /**
+     * The display order of edges. Edges comparing equal are listed once.
+     */
+    public static final Comparator<Edge> COMPARATOR = Comparator.comparing((Edge e) -> e.source.getSortKey())
+            .thenComparing(e -> e.target.getSortKey()).thenComparingInt(Edge::getPredicateOrder);
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private EdgeOrder() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Passes every edge of a graph to an action, in display order.
+     *
+     * @param graph the graph.
+     * @param action the action receiving the edges.
+     */
+    public static void forEachSorted(GraphView graph, Consumer<Edge> action) {
+        List<Edge> outgoing = new ArrayList<>();
+        graph.forEachSortedIndex(index -> {
+            Node source = graph.getNode(index);
+            outgoing.clear();
+            for (Predicate predicate : Predicate.values()) {
+                graph.forEachNeighbour(index, predicate, neighbour -> outgoing.add(new Edge(source, graph.getNode(neighbour), predicate)));
+            }
+            outgoing.sort(COMPARATOR);
+            Edge previous = null;
+            for (Edge e : outgoing) {
+                if ((previous == null) || (COMPARATOR.compare(previous, e) != 0)) {
+                    action.accept(e);
+                }
+                previous = e;
+            }
+        });
+    }
+}
@@ -1,13 +1,22 @@
 package edu.kit.kastel.model;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 import edu.kit.kastel.ui.ParseException;
 
 /**
  * Represents a final recommendation term.
  *
+ * <p>
+ * S2 and S3 may be limited to a number of hops from the reference product. Such a term is evaluated by a breadth-first search that stops
+ * after the last requested level instead of using the cached transitive closure, and fails once it has visited more than
+ * {@value #MAXIMUM_VISITED_NODES} products, so its cost is bounded regardless of how long the chain is.
+ * </p>
+ *
  * @author uupyx
  */
 public class FinalTerm implements Term {
@@ -17,9 +26,18 @@ public class FinalTerm implements Term {
     private static final String STRATEGY_S2 = "S2";
     private static final String STRATEGY_S3 = "S3";
     private static final String ERR_UNKNOWN_STRATEGY = "Unknown strategy ";
+    private static final String ERR_BUDGET = "Traversal from product id %d exceeds %d products";
+    private static final int INITIAL_QUEUE_SIZE = 16;
+    private static final int MAXIMUM_VISITED_NODES = 1 << 18;
+
+    /**
+     * Depth of a term that follows S2 or S3 transitively without a limit.
+     */
+    public static final int UNBOUNDED = 0;
 
     private final String strategy;
     private final int productId;
+    private final int depth;
 
     /**
      * Constructs a FinalTerm.
@@ -28,58 +46,253 @@ public class FinalTerm implements Term {
      * @param productId the product id.
      */
     public FinalTerm(String strategy, int productId) {
+        this(strategy, productId, UNBOUNDED);
+    }
+
+    /**
+     * Constructs a FinalTerm whose S2 or S3 traversal is limited to a number of hops.
+     *
+     * @param strategy the recommendation strategy.
+     * @param productId the product id.
+     * @param depth the maximum number of hops, or {@link #UNBOUNDED}.
+     */
+    public FinalTerm(String strategy, int productId, int depth) {
         this.strategy = strategy;
         this.productId = productId;
+        this.depth = depth;
     }
 
     /**
-     * Evaluates the final term.
+     * Evaluates the final term. The result of a hot unbounded term is read from the materialized results of the graph.
      *
      * @param graph the graph.
      * @return set of recommended products.
      * @throws ParseException if evaluation fails.
      */
     @Override
-    public Set<Product> evaluate(Graph graph) throws ParseException {
-        Product ref = graph.getProductById(productId);
-        if (ref == null) {
-            throw new ParseException(String.format(ERR_PRODUCT, productId));
+    public ProductSet evaluate(GraphView graph) throws ParseException {
+        int refIndex = indexOfReference(graph);
+        ProductSet result = new ProductSet(graph);
+        int[] materialized = (depth == UNBOUNDED) ? graph.getMaterialized(this) : null;
+        if (materialized != null) {
+            addAll(result, materialized);
+            return result;
         }
-        Set<Product> result = new HashSet<>();
         if (STRATEGY_S1.equals(strategy)) {
-            for (Edge e : graph.getOutgoingEdges(ref, Predicate.CONTAINED_IN)) {
-                for (Edge inEdge : graph.getOutgoingEdges(e.target, Predicate.CONTAINS)) {
-                    if ((inEdge.target instanceof Product) && (!inEdge.target.equals(ref))) {
-                        result.add((Product) inEdge.target);
-                    }
+            graph.forEachNeighbour(refIndex, Predicate.CONTAINED_IN, category -> addAll(result, graph.getMembers(category)));
+        } else if (STRATEGY_S2.equals(strategy)) {
+            addReachable(graph, refIndex, Predicate.PREDECESSOR_OF, result);
+        } else if (STRATEGY_S3.equals(strategy)) {
+            addReachable(graph, refIndex, Predicate.SUCCESSOR_OF, result);
+        } else {
+            throw new ParseException(ERR_UNKNOWN_STRATEGY + strategy);
+        }
+
+        result.remove(refIndex);
+
+        return result;
+    }
+
+    /**
+     * Scores the final term. For S1 a product scores the number of categories it shares with the reference product, for S2 and S3 the
+     * reciprocal of its distance in hops, so direct predecessors or successors score 1.
+     *
+     * @param graph the graph.
+     * @return the recommended products with their scores.
+     * @throws ParseException if evaluation fails.
+     */
+    @Override
+    public ScoredProducts score(GraphView graph) throws ParseException {
+        int refIndex = indexOfReference(graph);
+        ScoredProducts result = new ScoredProducts(graph);
+        if (STRATEGY_S1.equals(strategy)) {
+            graph.forEachNeighbour(refIndex, Predicate.CONTAINED_IN, category -> {
+                for (int member : graph.getMembers(category)) {
+                    result.add(member, 1);
                 }
-            }
+            });
         } else if (STRATEGY_S2.equals(strategy)) {
-            result.addAll(dfs(graph, ref, Predicate.PREDECESSOR_OF, new HashSet<>()));
+            traverse(graph, refIndex, Predicate.PREDECESSOR_OF, result);
         } else if (STRATEGY_S3.equals(strategy)) {
-            result.addAll(dfs(graph, ref, Predicate.SUCCESSOR_OF, new HashSet<>()));
+            traverse(graph, refIndex, Predicate.SUCCESSOR_OF, result);
         } else {
             throw new ParseException(ERR_UNKNOWN_STRATEGY + strategy);
         }
 
-        result.remove(ref);
+        result.remove(refIndex);
 
         return result;
     }
 
-    private Set<Product> dfs(Graph graph, Product start, Predicate predicate, Set<Product> visited) {
-        Set<Product> result = new HashSet<>();
-        if (visited.contains(start)) {
-            return result;
+    /**
+     * Estimates the result size from the degrees of the reference product: the summed sizes of its categories for S1 and its number of
+     * direct predecessors or successors for S2 and S3.
+     *
+     * @param graph the graph.
+     * @return the estimated result size.
+     * @throws ParseException if the reference product does not exist or the strategy is unknown.
+     */
+    @Override
+    public int estimate(GraphView graph) throws ParseException {
+        int refIndex = indexOfReference(graph);
+        if (STRATEGY_S1.equals(strategy)) {
+            int[] sum = {0};
+            graph.forEachNeighbour(refIndex, Predicate.CONTAINED_IN,
+                    category -> sum[0] += graph.getDegree(category, Predicate.CONTAINS));
+            return sum[0];
+        } else if (STRATEGY_S2.equals(strategy)) {
+            return graph.getDegree(refIndex, Predicate.PREDECESSOR_OF);
+        } else if (STRATEGY_S3.equals(strategy)) {
+            return graph.getDegree(refIndex, Predicate.SUCCESSOR_OF);
+        }
+        throw new ParseException(ERR_UNKNOWN_STRATEGY + strategy);
+    }
+
+    @Override
+    public void forEachFinalTerm(Consumer<FinalTerm> action) {
+        action.accept(this);
+    }
+
+    /**
+     * Returns the maximum number of hops of an S2 or S3 traversal.
+     *
+     * @return the depth, or {@link #UNBOUNDED}.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Computes the result of this term for the {@link Materializer} without reading materialized results, together with the edges the
+     * result depends on: the categories of the reference product and their members for S1, the chain reachable from it for S2 and S3.
+     *
+     * @param graph the view to compute on.
+     * @return the entry, or null if the term is depth-limited, its strategy is unknown or the reference product does not exist.
+     */
+    Materializer.Entry materialize(GraphView graph) {
+        Product ref = graph.getProductById(productId);
+        if ((ref == null) || (depth != UNBOUNDED)) {
+            return null;
+        }
+        int refIndex = graph.indexOf(ref);
+        long version = graph.getVersion();
+        Predicate predicate;
+        if (STRATEGY_S1.equals(strategy)) {
+            BitSet categories = new BitSet();
+            graph.forEachNeighbour(refIndex, Predicate.CONTAINED_IN, categories::set);
+            ProductSet result = new ProductSet(graph);
+            categories.stream().forEach(category -> addAll(result, graph.getMembers(category)));
+            result.remove(refIndex);
+            return new Materializer.Entry(refIndex, result.toArray(), Predicate.CONTAINED_IN, Predicate.CONTAINS,
+                    categories.stream().toArray(), version);
+        } else if (STRATEGY_S2.equals(strategy)) {
+            predicate = Predicate.PREDECESSOR_OF;
+        } else if (STRATEGY_S3.equals(strategy)) {
+            predicate = Predicate.SUCCESSOR_OF;
+        } else {
+            return null;
+        }
+        int[] closure = graph.getClosure(refIndex, predicate);
+        int[] result = Arrays.stream(closure).filter(index -> index != refIndex).toArray();
+        return new Materializer.Entry(refIndex, result, predicate, predicate, closure, version);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
         }
-        visited.add(start);
-        for (Edge e : graph.getOutgoingEdges(start, predicate)) {
-            if (e.target instanceof Product) {
-                Product p = (Product) e.target;
-                result.add(p);
-                result.addAll(dfs(graph, p, predicate, visited));
+        if (!(o instanceof FinalTerm)) {
+            return false;
+        }
+        FinalTerm other = (FinalTerm) o;
+        return (productId == other.productId) && (depth == other.depth) && strategy.equals(other.strategy);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(strategy, productId, depth);
+    }
+
+    private int indexOfReference(GraphView graph) throws ParseException {
+        Product ref = graph.getProductById(productId);
+        if (ref == null) {
+            throw new ParseException(String.format(ERR_PRODUCT, productId));
+        }
+        return graph.indexOf(ref);
+    }
+
+    private static void addAll(ProductSet result, int[] indices) {
+        for (int index : indices) {
+            result.add(index);
+        }
+    }
+
+    private void addReachable(GraphView graph, int start, Predicate predicate, ProductSet result) throws ParseException {
+        if (depth == UNBOUNDED) {
+            addAll(result, graph.getClosure(start, predicate));
+            return;
+        }
+        Search search = traverse(graph, start, predicate, null);
+        for (int i = 1; i < search.size; i++) {
+            result.add(search.queue[i]);
+        }
+    }
+
+    /**
+     * Visits the products reachable from a node level by level, up to the depth of this term, and scores each of them by the reciprocal
+     * of its distance if scores are given. A bounded traversal fails once it has visited too many products.
+     */
+    private Search traverse(GraphView graph, int start, Predicate predicate, ScoredProducts scores) throws ParseException {
+        Search search = new Search(graph, scores);
+        search.visited.set(start);
+        search.enqueue(start);
+        int head = 0;
+        while ((head < search.size) && ((depth == UNBOUNDED) || (search.distance < depth))) {
+            search.distance++;
+            for (int levelEnd = search.size; head < levelEnd; head++) {
+                graph.forEachNeighbour(search.queue[head], predicate, search);
+                if ((depth != UNBOUNDED) && (search.size > MAXIMUM_VISITED_NODES)) {
+                    throw new ParseException(String.format(ERR_BUDGET, productId, MAXIMUM_VISITED_NODES));
+                }
             }
         }
-        return result;
+        return search;
+    }
+
+    /**
+     * State of a level-synchronous breadth-first search, receiving the neighbours of the nodes of the current level. The queue holds
+     * every visited node in the order of its distance, starting with the reference product.
+     */
+    private static final class Search implements IntConsumer {
+        private final GraphView graph;
+        private final ScoredProducts scores;
+        private final BitSet visited = new BitSet();
+        private int[] queue = new int[INITIAL_QUEUE_SIZE];
+        private int size;
+        private int distance;
+
+        Search(GraphView graph, ScoredProducts scores) {
+            this.graph = graph;
+            this.scores = scores;
+        }
+
+        @Override
+        public void accept(int neighbour) {
+            if ((graph.getNode(neighbour) instanceof Product) && !visited.get(neighbour)) {
+                visited.set(neighbour);
+                if (scores != null) {
+                    scores.add(neighbour, 1.0 / distance);
+                }
+                enqueue(neighbour);
+            }
+        }
+
+        void enqueue(int index) {
+            if (size == queue.length) {
+                queue = Arrays.copyOf(queue, size * 2);
+            }
+            queue[size++] = index;
+        }
     }
 }
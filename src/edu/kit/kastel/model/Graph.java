@@ -1,56 +1,161 @@
 package edu.kit.kastel.model;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+import java.util.function.ToIntFunction;
 
 import edu.kit.kastel.Message;
 
 /**
  * Graph data structure representing nodes and edges.
  *
+ * <p>
+ * Every node with at least one edge is assigned a dense index, see {@link GraphView}. A graph that is not going to be modified for a while
+ * can be {@linkplain #freeze() frozen}: its edges are compiled into a {@link CompactGraph} and the per-edge hash structures are released.
+ * The first modification of a frozen graph transparently rebuilds them, keeping all node indices.
+ * </p>
+ *
+ * <p>
+ * The listed nodes and categories are kept sorted by name, and the nodes with edges by sort key, as they are added and removed, so
+ * listing the graph walks these indexes in order instead of sorting on every call.
+ * </p>
+ *
+ * <p>
+ * In {@linkplain #setConcurrent(boolean) concurrent mode} the graph has a single writer and any number of readers. The monitor of the
+ * graph is the writer lock: every modifying method acquires it, and a sequence of modifications that has to appear atomic, such as a
+ * whole command, is run while holding it. Readers use {@link #view()}, which returns the frozen form of the latest version. As thawing
+ * leaves the compiled form untouched, a view stays valid and unchanged while the writer moves on, so readers never observe a partial
+ * modification and only wait for the writer when they are the first to read a new version.
+ * </p>
+ *
  * @author uupyx
  */
-public class Graph {
+public class Graph implements GraphView {
+
+    private static final int PREDICATE_COUNT = Predicate.values().length;
+    private static final AtomicLong VERSIONS = new AtomicLong();
+    private static final Comparator<Node> NAME_ORDER = Comparator.comparing(Node::getCanonicalName);
 
-    private final Set<Edge> edges;
-    private final Set<Node> nodes;
+    private final Map<String, Node> nodesByName;
+    private final NavigableSet<Node> listedNodes;
+
+    /**
+     * The listed nodes by position, built on demand for paging and dropped whenever a node is listed or unlisted.
+     */
+    private Node[] rankedNodes;
+    private final NavigableSet<Category> listedCategories;
+
+    /**
+     * The nodes with at least one edge by sort key. Freezing keeps all nodes, so the index is left untouched by freezing and thawing.
+     */
+    private final NavigableMap<String, Node> nodesBySortKey;
     private final Map<Integer, Product> productsById;
+    private Set<Edge> edges;
+    private Map<Node, Adjacency> adjacency;
+    private List<Adjacency> vertices;
+    private Deque<Integer> freeIndices;
+    private final ClosureCache closures;
+    private final MembershipIndex memberships;
+    private final Materializer materializer;
+
+    /**
+     * The modifications since the compiled form was last published, which the next compiled form does not share with it.
+     */
+    private final ChangeSet unpublished;
+
+    /**
+     * The compiled form of the graph while it is frozen, null otherwise.
+     */
+    private CompactGraph frozen;
 
     /**
      * A variable, which shows whether the graph is completely loaded from a database or not.
      */
-    private boolean loaded;
+    private volatile boolean loaded;
+
+    /**
+     * Whether reads are served from immutable views, see {@link #view()}.
+     */
+    private volatile boolean concurrent;
+
+    /**
+     * The compiled form of the latest version handed out by {@link #view()}.
+     */
+    private volatile CompactGraph published;
+
+    /**
+     * The modification version, drawn from a counter shared by all graphs.
+     */
+    private volatile long version;
+
+    /**
+     * The log recording every modification, or null if the graph is not durable.
+     */
+    private MutationLog log;
 
     /**
      * Constructs an empty Graph.
      */
     public Graph() {
-        nodes = new HashSet<>();
-        edges = new HashSet<>();
+        nodesByName = new HashMap<>();
+        listedNodes = new TreeSet<>(NAME_ORDER);
+        listedCategories = new TreeSet<>(NAME_ORDER);
+        nodesBySortKey = new TreeMap<>();
         productsById = new HashMap<>();
+        edges = new HashSet<>();
+        adjacency = new HashMap<>();
+        vertices = new ArrayList<>();
+        freeIndices = new ArrayDeque<>();
+        closures = new ClosureCache(this);
+        memberships = new MembershipIndex(this);
+        materializer = new Materializer();
+        unpublished = new ChangeSet();
+        version = VERSIONS.incrementAndGet();
     }
 
     /**
-     * Adds an edge to the graph and creates its inverse if necessary.
+     * Adds an edge to the graph and creates its inverse if necessary. Adding an edge that is already present leaves the graph frozen and
+     * its version unchanged.
      *
      * @param e the edge to add.
      * @return true if added successfully, false otherwise.
      */
-    public boolean addEdge(Edge e) {
+    public synchronized boolean addEdge(Edge e) {
         if (e.source.equals(e.target) || !e.predicate.validate(e.source, e.target)) {
             return false;
         }
-        addNode(e.source);
-        addNode(e.target);
-        if (edges.contains(e)) {
+        boolean listed = addNode(e.source) | addNode(e.target);
+        if (containsEdge(e)) {
+            if (listed) {
+                touch();
+            }
             return true;
         }
 
-        edges.add(e);
+        thaw();
+        touch();
+        link(e);
+        if (log != null) {
+            log.added(e);
+        }
         Predicate inversePredicate = e.predicate.getInverse();
         if (inversePredicate == null) {
             Message.UNKNOWN_PREDICATE.error(e.predicate.name());
@@ -58,45 +163,410 @@ public class Graph {
         }
         Edge inverse = new Edge(e.target, e.source, inversePredicate);
         if (!edges.contains(inverse)) {
-            edges.add(inverse);
+            link(inverse);
         }
 
         return true;
     }
 
     /**
-     * Removes an edge and its inverse from the graph.
+     * Removes an edge and its inverse from the graph. Removing a missing edge leaves the graph frozen and its version unchanged.
      *
      * @param e the edge to remove.
      * @return true if the edge was removed, false otherwise.
      */
-    public boolean removeEdge(Edge e) {
-        boolean removed = edges.remove(e);
+    public synchronized boolean removeEdge(Edge e) {
+        if (!containsEdge(e)) {
+            return false;
+        }
+        thaw();
+        touch();
+        boolean removed = unlink(e);
+        if (log != null) {
+            log.removed(e);
+        }
         Predicate inversePredicate = e.predicate.getInverse();
         Edge inverse = new Edge(e.target, e.source, inversePredicate);
-        edges.remove(inverse);
+        unlink(inverse);
         removeIsolated(e.source);
         removeIsolated(e.target);
         return removed;
     }
 
     /**
-     * Removes a node from the graph if it has no connected edges.
+     * Applies a batch of edge additions and removals as a single modification. All changes are validated before the first one is
+     * applied, taking the effect of the earlier changes of the batch into account, so either the whole batch is applied or the graph is
+     * left untouched. The caches are updated once for the whole batch, and a batch that changes nothing leaves the graph frozen and its
+     * version unchanged.
      *
-     * @param n the node to potentially remove.
+     * @param batch the changes in order.
+     * @return the position of the first change that fails, i.e. an invalid addition or the removal of a missing edge, or -1 if the batch
+     *         was applied.
      */
-    private void removeIsolated(Node n) {
-        boolean hasEdge = false;
-        for (Edge edge : edges) {
-            if (edge.source.equals(n) || edge.target.equals(n)) {
-                hasEdge = true;
+    public synchronized int apply(Batch batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            Edge e = batch.getEdge(i);
+            if (!batch.isRemoval(i) && (e.source.equals(e.target) || !e.predicate.validate(e.source, e.target))) {
+                return i;
+            }
+        }
+        Map<Edge, Boolean> pending = new HashMap<>();
+        boolean changes = false;
+        for (int i = 0; i < batch.size(); i++) {
+            Edge e = batch.getEdge(i);
+            boolean removal = batch.isRemoval(i);
+            Boolean pendingPresent = pending.get(e);
+            boolean present = (pendingPresent == null) ? containsEdge(e) : pendingPresent;
+            if (removal && !present) {
+                return i;
+            }
+            changes |= removal || !present;
+            pending.put(e, !removal);
+            pending.put(inverse(e), !removal);
+        }
+        if (!changes) {
+            boolean listed = false;
+            for (int i = 0; i < batch.size(); i++) {
+                listed |= addNode(batch.getEdge(i).source) | addNode(batch.getEdge(i).target);
+            }
+            if (listed) {
+                touch();
+            }
+            return -1;
+        }
+
+        thaw();
+        touch();
+        BitSet[] changedSources = new BitSet[PREDICATE_COUNT];
+        for (int i = 0; i < PREDICATE_COUNT; i++) {
+            changedSources[i] = new BitSet();
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            Edge e = batch.getEdge(i);
+            if (batch.isRemoval(i)) {
+                for (Edge removed : List.of(e, inverse(e))) {
+                    changedSources[removed.predicate.ordinal()].set(indexOf(removed.source));
+                    delete(removed);
+                }
+                removeIsolated(e.source);
+                removeIsolated(e.target);
+                if (log != null) {
+                    log.removed(e);
+                }
+            } else {
+                addNode(e.source);
+                addNode(e.target);
+                boolean present = edges.contains(e);
+                for (Edge added : List.of(e, inverse(e))) {
+                    insert(added);
+                    changedSources[added.predicate.ordinal()].set(indexOf(added.source));
+                }
+                if (!present && (log != null)) {
+                    log.added(e);
+                }
+            }
+        }
+        invalidate(changedSources);
+        return -1;
+    }
+
+    /**
+     * Adds edges in order like repeated calls of {@link #addEdge(Edge)}, but as a single modification: the graph is thawed and moved to
+     * a new version at most once, and the caches are updated once for all edges. Adding stops at the first invalid edge, keeping the edges
+     * before it.
+     *
+     * @param added the edges to add.
+     * @return the number of edges added before the first invalid one, the size of the list if all of them are valid.
+     */
+    public synchronized int addEdges(List<Edge> added) {
+        BitSet[] changedSources = null;
+        boolean listed = false;
+        int count = 0;
+        for (Edge e : added) {
+            if (e.source.equals(e.target) || !e.predicate.validate(e.source, e.target)) {
                 break;
             }
+            count++;
+            listed |= addNode(e.source) | addNode(e.target);
+            if (containsEdge(e)) {
+                continue;
+            }
+            if (changedSources == null) {
+                thaw();
+                touch();
+                changedSources = new BitSet[PREDICATE_COUNT];
+                for (int i = 0; i < PREDICATE_COUNT; i++) {
+                    changedSources[i] = new BitSet();
+                }
+            }
+            for (Edge inserted : List.of(e, inverse(e))) {
+                insert(inserted);
+                changedSources[inserted.predicate.ordinal()].set(indexOf(inserted.source));
+            }
+            if (log != null) {
+                log.added(e);
+            }
+        }
+        if (changedSources != null) {
+            invalidate(changedSources);
+        } else if (listed) {
+            touch();
+        }
+        return count;
+    }
+
+    /**
+     * Drops the cached closures, memberships and materialized results affected by a modification, in a single pass per predicate.
+     *
+     * @param changedSources the source node indices of the changed edges per predicate ordinal.
+     */
+    private void invalidate(BitSet[] changedSources) {
+        unpublished.edges(changedSources);
+        for (Predicate predicate : Predicate.values()) {
+            closures.invalidate(predicate, changedSources[predicate.ordinal()]);
+            materializer.invalidate(predicate, changedSources[predicate.ordinal()], version);
+        }
+        changedSources[Predicate.CONTAINS.ordinal()].stream().forEach(memberships::invalidate);
+    }
+
+    /**
+     * Computes the changes turning the graph into a graph with exactly the given edges and their inverses. Edges present in both are left
+     * alone, so applying the result touches only the difference.
+     *
+     * @param target the edges the graph should have, in either direction.
+     * @return the removals of all edges missing from the target, followed by the additions of the new edges in the given order.
+     */
+    public synchronized Batch diff(Collection<Edge> target) {
+        Map<Edge, Edge> wanted = new LinkedHashMap<>();
+        for (Edge e : target) {
+            wanted.putIfAbsent(e.predicate.isPrimary() ? e : inverse(e), e);
+        }
+        Batch batch = new Batch();
+        forEachSortedIndex(index -> {
+            Node source = getNode(index);
+            for (Predicate predicate : Predicate.values()) {
+                if (predicate.isPrimary()) {
+                    forEachNeighbour(index, predicate, neighbour -> {
+                        Edge live = new Edge(source, getNode(neighbour), predicate);
+                        if (wanted.remove(live) == null) {
+                            batch.remove(live);
+                        }
+                    });
+                }
+            }
+        });
+        for (Edge e : wanted.values()) {
+            batch.add(e);
+        }
+        return batch;
+    }
+
+    private static Edge inverse(Edge e) {
+        return new Edge(e.target, e.source, e.predicate.getInverse());
+    }
+
+    /**
+     * Removes every edge connected to a node, together with the inverse edges, and drops all nodes left isolated by the removal.
+     *
+     * @param n the node whose edges are removed.
+     * @return the number of removed edges, inverse edges included.
+     */
+    public synchronized int removeEdges(Node n) {
+        return removeEdges(Collections.singleton(n));
+    }
+
+    /**
+     * Removes every product contained in a category, i.e. all edges connected to those products, in a single pass. The category itself
+     * is removed as well if it is left without edges.
+     *
+     * @param category the category whose products are removed.
+     * @return the number of removed edges, inverse edges included.
+     */
+    public synchronized int removeCategoryProducts(Category category) {
+        Set<Node> members = new HashSet<>();
+        for (Edge e : getOutgoingEdges(category, Predicate.CONTAINS)) {
+            if (e.target instanceof Product) {
+                members.add(e.target);
+            }
+        }
+        return removeEdges(members);
+    }
+
+    /**
+     * Removes all edges connected to any of the given nodes and afterwards checks every touched node for isolation exactly once.
+     *
+     * @param removedNodes the nodes whose edges are removed.
+     * @return the number of removed edges, inverse edges included.
+     */
+    private int removeEdges(Set<Node> removedNodes) {
+        if (removedNodes.stream().allMatch(n -> indexOf(n) < 0)) {
+            return 0;
+        }
+        thaw();
+        touch();
+        Set<Edge> doomed = new HashSet<>();
+        for (Node n : removedNodes) {
+            Adjacency entry = adjacency.get(n);
+            if (entry != null) {
+                for (Predicate predicate : Predicate.values()) {
+                    doomed.addAll(entry.outgoing(predicate));
+                    doomed.addAll(entry.incoming(predicate));
+                }
+            }
         }
-        if (!hasEdge) {
-            nodes.remove(n);
-            if (n instanceof Product) {
-                productsById.remove(((Product) n).id);
+        Set<Node> touched = new HashSet<>(removedNodes);
+        for (Edge e : doomed) {
+            unlink(e);
+            if ((log != null) && e.predicate.isPrimary()) {
+                log.removed(e);
+            }
+            touched.add(e.source);
+            touched.add(e.target);
+        }
+        for (Node n : touched) {
+            removeIsolated(n);
+        }
+        return doomed.size();
+    }
+
+    /**
+     * Checks whether an edge is present, without thawing a frozen graph.
+     *
+     * @param e the edge.
+     * @return true if the edge is present, false otherwise.
+     */
+    private boolean containsEdge(Edge e) {
+        if (frozen == null) {
+            return edges.contains(e);
+        }
+        int source = frozen.indexOf(e.source);
+        int target = frozen.indexOf(e.target);
+        return (source >= 0) && (target >= 0) && frozen.hasEdge(source, e.predicate, target);
+    }
+
+    /**
+     * Stores an edge and drops the cached closures and memberships it affects.
+     *
+     * @param e the edge to store.
+     */
+    private void link(Edge e) {
+        insert(e);
+        invalidate(e.predicate, indexOf(e.source));
+    }
+
+    /**
+     * Removes an edge and drops the cached closures and memberships it affected.
+     *
+     * @param e the edge to remove.
+     * @return true if the edge was present, false otherwise.
+     */
+    private boolean unlink(Edge e) {
+        int sourceIndex = indexOf(e.source);
+        if (sourceIndex < 0) {
+            return false;
+        }
+        invalidate(e.predicate, sourceIndex);
+        return delete(e);
+    }
+
+    /**
+     * Drops the cached closures, memberships and materialized results affected by a changed edge.
+     *
+     * @param predicate the predicate of the edge.
+     * @param sourceIndex the source node index of the edge.
+     */
+    private void invalidate(Predicate predicate, int sourceIndex) {
+        unpublished.edge(predicate, sourceIndex);
+        closures.invalidate(predicate, sourceIndex);
+        if (predicate == Predicate.CONTAINS) {
+            memberships.invalidate(sourceIndex);
+        }
+        materializer.invalidate(predicate, sourceIndex, version);
+    }
+
+    /**
+     * Stores an edge and registers it in the adjacency lists of both endpoints.
+     *
+     * @param e the edge to store.
+     */
+    private void insert(Edge e) {
+        if (edges.add(e)) {
+            vertex(e.source).addOutgoing(e);
+            vertex(e.target).addIncoming(e);
+        }
+    }
+
+    /**
+     * Returns the adjacency entry of a node, creating it with a free index if the node has no edges yet.
+     *
+     * @param n the node.
+     * @return the adjacency entry.
+     */
+    private Adjacency vertex(Node n) {
+        Adjacency entry = adjacency.get(n);
+        if (entry == null) {
+            if (freeIndices.isEmpty()) {
+                entry = new Adjacency(n, vertices.size());
+                vertices.add(entry);
+            } else {
+                entry = new Adjacency(n, freeIndices.pop());
+                vertices.set(entry.index, entry);
+            }
+            adjacency.put(n, entry);
+            nodesBySortKey.put(n.getSortKey(), n);
+            unpublished.node();
+        }
+        return entry;
+    }
+
+    /**
+     * Drops the adjacency entry of a node without edges and frees its index.
+     *
+     * @param entry the adjacency entry.
+     */
+    private void release(Adjacency entry) {
+        unpublished.release(entry.index);
+        closures.forget(entry.index);
+        materializer.forget(entry.index, version);
+        adjacency.remove(entry.node);
+        nodesBySortKey.remove(entry.node.getSortKey());
+        vertices.set(entry.index, null);
+        freeIndices.push(entry.index);
+    }
+
+    /**
+     * Removes an edge and unregisters it from the adjacency lists of both endpoints.
+     *
+     * @param e the edge to remove.
+     * @return true if the edge was present, false otherwise.
+     */
+    private boolean delete(Edge e) {
+        if (!edges.remove(e)) {
+            return false;
+        }
+        Adjacency sourceAdjacency = adjacency.get(e.source);
+        sourceAdjacency.removeOutgoing(e);
+        if (sourceAdjacency.isEmpty()) {
+            release(sourceAdjacency);
+        }
+        Adjacency targetAdjacency = adjacency.get(e.target);
+        targetAdjacency.removeIncoming(e);
+        if (targetAdjacency.isEmpty()) {
+            release(targetAdjacency);
+        }
+        return true;
+    }
+
+    /**
+     * Removes a node from the graph if it has no connected edges.
+     *
+     * @param n the node to potentially remove.
+     */
+    private void removeIsolated(Node n) {
+        if (indexOf(n) < 0) {
+            unlist(n);
+            if ((n instanceof Product) && productsById.remove(((Product) n).id, n)) {
+                unpublished.listing();
             }
         }
     }
@@ -105,51 +575,103 @@ public class Graph {
      * Adds a node to the graph if it does not already exist.
      *
      * @param n the node to add.
+     * @return true if the node was listed, false if it already existed or conflicts with an existing node.
      */
-    private void addNode(Node n) {
+    private boolean addNode(Node n) {
         if (n instanceof Product) {
             Product newProduct = (Product) n;
             if (productsById.containsKey(newProduct.id)) {
                 Product existing = productsById.get(newProduct.id);
-                if (!existing.name.equalsIgnoreCase(newProduct.name)) {
+                if (!existing.getCanonicalName().equals(newProduct.getCanonicalName())) {
                     Message.ALREADY_EXISTS.error(newProduct.id);
-                    return;
+                    return false;
                 }
-                return;
+                return false;
             }
         }
 
-        boolean exists = false;
-        for (Node node : nodes) {
-            if (node.name.equalsIgnoreCase(n.name)) {
-                exists = true;
-                if ((node instanceof Product) && (n instanceof Product)) {
-                    Product existing = (Product) node;
-                    Product newProduct = (Product) n;
-                    if (existing.id != newProduct.id) {
-                        Message.INCONSISTENT_ID.error(n.name);
-                    }
+        String key = nameKey(n);
+        Node node = nodesByName.get(key);
+        if (node != null) {
+            if ((node instanceof Product) && (n instanceof Product)) {
+                Product existing = (Product) node;
+                Product newProduct = (Product) n;
+                if (existing.id != newProduct.id) {
+                    Message.INCONSISTENT_ID.error(n.name);
                 }
-                break;
+            }
+            return false;
+        }
+        list(n);
+        if (n instanceof Product) {
+            productsById.put(((Product) n).id, (Product) n);
+        }
+        return true;
+    }
+
+    /**
+     * Registers a node under its name, replacing the node listed under that name before.
+     *
+     * @param n the node.
+     */
+    private void list(Node n) {
+        unpublished.listing();
+        rankedNodes = null;
+        Node previous = nodesByName.put(nameKey(n), n);
+        if (previous != null) {
+            listedNodes.remove(previous);
+            if (previous instanceof Category) {
+                listedCategories.remove(previous);
             }
         }
-        if (!exists) {
-            nodes.add(n);
-            if (n instanceof Product) {
-                productsById.put(((Product) n).id, (Product) n);
+        listedNodes.add(n);
+        if (n instanceof Category) {
+            listedCategories.add((Category) n);
+        }
+    }
+
+    /**
+     * Unregisters a node from its name if it is the node listed under that name.
+     *
+     * @param n the node.
+     */
+    private void unlist(Node n) {
+        if (nodesByName.remove(nameKey(n), n)) {
+            unpublished.listing();
+            rankedNodes = null;
+            listedNodes.remove(n);
+            if (n instanceof Category) {
+                listedCategories.remove(n);
             }
         }
     }
 
+    /**
+     * Returns the key under which a node is registered in the name index.
+     *
+     * @param n the node.
+     * @return the name key.
+     */
+    private static String nameKey(Node n) {
+        return n.getCanonicalName();
+    }
+
     /**
      * Returns all nodes in sorted order.
      *
-     * @return sorted set of nodes.
+     * @return read-only view of the sorted nodes, reflecting later modifications.
      */
+    @Override
     public Set<Node> getNodes() {
-        TreeSet<Node> sorted = new TreeSet<>(Comparator.comparing(n -> n.name.toLowerCase()));
-        sorted.addAll(nodes);
-        return sorted;
+        return Collections.unmodifiableNavigableSet(listedNodes);
+    }
+
+    @Override
+    public List<Node> getNodes(long offset, long limit) {
+        if (rankedNodes == null) {
+            rankedNodes = listedNodes.toArray(new Node[0]);
+        }
+        return CompactGraph.page(rankedNodes, offset, limit);
     }
 
     /**
@@ -157,27 +679,21 @@ public class Graph {
      *
      * @return sorted set of edges.
      */
+    @Override
     public Set<Edge> getEdges() {
-        TreeSet<Edge> sorted = new TreeSet<>(Comparator.comparing((Edge e) -> e.source.getSortKey())
-                .thenComparing(e -> e.target.getSortKey()).thenComparing(e -> e.getPredicateOrder()));
-        sorted.addAll(edges);
-
+        Set<Edge> sorted = new LinkedHashSet<>();
+        EdgeOrder.forEachSorted(this, sorted::add);
         return sorted;
     }
 
     /**
      * Returns all category nodes in sorted order.
      *
-     * @return sorted set of categories.
+     * @return read-only view of the sorted categories, reflecting later modifications.
      */
+    @Override
     public Set<Category> getCategories() {
-        TreeSet<Category> sorted = new TreeSet<>(Comparator.comparing(c -> c.name.toLowerCase()));
-        for (Node n : nodes) {
-            if (n instanceof Category) {
-                sorted.add((Category) n);
-            }
-        }
-        return sorted;
+        return Collections.unmodifiableNavigableSet(listedCategories);
     }
 
     /**
@@ -188,13 +704,32 @@ public class Graph {
      * @return set of matching edges.
      */
     public Set<Edge> getOutgoingEdges(Node source, Predicate predicate) {
-        Set<Edge> set = new HashSet<>();
-        for (Edge e : edges) {
-            if (e.source.equals(source) && e.predicate.equals(predicate)) {
-                set.add(e);
-            }
+        if (frozen != null) {
+            return compiledEdges(source, predicate, false);
         }
-        return set;
+        Adjacency entry = adjacency.get(source);
+        if (entry == null) {
+            return Collections.emptySet();
+        }
+        return entry.outgoing(predicate);
+    }
+
+    /**
+     * Returns all incoming edges to a given target node that match the specified predicate.
+     *
+     * @param target the target node.
+     * @param predicate the predicate to match.
+     * @return set of matching edges.
+     */
+    public Set<Edge> getIncomingEdges(Node target, Predicate predicate) {
+        if (frozen != null) {
+            return compiledEdges(target, predicate.getInverse(), true);
+        }
+        Adjacency entry = adjacency.get(target);
+        if (entry == null) {
+            return Collections.emptySet();
+        }
+        return entry.incoming(predicate);
     }
 
     /**
@@ -205,31 +740,420 @@ public class Graph {
      */
     public Set<Edge> getOutgoingEdges(Node source) {
         Set<Edge> set = new HashSet<>();
-        for (Edge e : edges) {
-            if (e.source.equals(source)) {
-                set.add(e);
-            }
+        for (Predicate predicate : Predicate.values()) {
+            set.addAll(getOutgoingEdges(source, predicate));
         }
         return set;
     }
 
+    /**
+     * Creates the edges of a node from the compiled form of the frozen graph.
+     *
+     * @param n the node.
+     * @param predicate the predicate of the outgoing edges to create.
+     * @param reversed whether to create the inverse, i.e. incoming, edges instead.
+     * @return set of created edges.
+     */
+    private Set<Edge> compiledEdges(Node n, Predicate predicate, boolean reversed) {
+        int index = frozen.indexOf(n);
+        if (index < 0) {
+            return Collections.emptySet();
+        }
+        Node node = frozen.getNode(index);
+        Set<Edge> set = new HashSet<>();
+        frozen.forEachNeighbour(index, predicate, neighbour -> {
+            Node other = frozen.getNode(neighbour);
+            set.add(reversed ? new Edge(other, node, predicate.getInverse()) : new Edge(node, other, predicate));
+        });
+        return set;
+    }
+
+    /**
+     * Compiles the graph into a {@link CompactGraph} and releases the per-edge hash structures. Reads are served from the compiled form
+     * until the next modification, which thaws the graph again. Freezing a frozen graph has no effect.
+     */
+    public synchronized void freeze() {
+        if (frozen != null) {
+            return;
+        }
+        frozen = compile();
+        published = frozen;
+        unpublished.clear();
+        edges = new HashSet<>();
+        adjacency = new HashMap<>();
+        vertices = new ArrayList<>();
+        freeIndices = new ArrayDeque<>();
+    }
+
+    /**
+     * Publishes the current version for {@link #view()} in concurrent mode. The writer calls this once after each modifying command, so
+     * the graph is compiled once per command instead of once per edge, and readers never wait for the compilation. The per-edge hash
+     * structures are kept, so the next modification does not have to thaw the graph. Publishing has no effect outside of concurrent mode
+     * or if the current version is already published.
+     */
+    public synchronized void publish() {
+        if (concurrent && (frozen == null) && ((published == null) || (published.getVersion() != version))) {
+            published = compile();
+            unpublished.clear();
+        }
+    }
+
+    /**
+     * Compiles the per-edge hash structures into a {@link CompactGraph} of the current version. Unless the graph was reset, the compiled
+     * form shares everything the modifications since the last published version did not change with that version: the node table and
+     * listings if no node was added, released, listed or unlisted, the rows of every predicate whose edges did not change, and the
+     * unaffected cached closures and memberships. The rows of changed predicates are copied from the previous version except for the
+     * changed nodes, whose rows are read from the hash structures.
+     *
+     * @return the compiled graph.
+     */
+    private CompactGraph compile() {
+        CompactGraph previous = ((published == null) || unpublished.isComplete()) ? null : published;
+        int bound = vertices.size();
+        Node[] nodes = null;
+        int[] order = null;
+        if ((previous == null) || unpublished.hasNodeChanges()) {
+            nodes = new Node[bound];
+            for (int i = 0; i < bound; i++) {
+                nodes[i] = (vertices.get(i) == null) ? null : vertices.get(i).node;
+            }
+            order = sortKeyOrder(n -> adjacency.get(n).index);
+        }
+        int[][] offsets = new int[PREDICATE_COUNT][];
+        int[][] targets = new int[PREDICATE_COUNT][];
+        for (Predicate predicate : Predicate.values()) {
+            if (!predicate.isPrimary()) {
+                continue;
+            }
+            BitSet changed = (previous == null) ? null : unpublished.getSources(predicate);
+            if ((changed != null) && changed.isEmpty() && unpublished.getSources(predicate.getInverse()).isEmpty()) {
+                continue;
+            }
+            int[] rows = new int[bound + 1];
+            for (int i = 0; i < bound; i++) {
+                rows[i + 1] = rows[i] + (isCopied(previous, changed, i) ? previous.getDegree(i, predicate) : compiledDegree(i, predicate));
+            }
+            int[] columns = new int[rows[bound]];
+            for (int i = 0; i < bound; i++) {
+                int[] next = {rows[i]};
+                if (isCopied(previous, changed, i)) {
+                    previous.forEachNeighbour(i, predicate, neighbour -> columns[next[0]++] = neighbour);
+                } else if (vertices.get(i) != null) {
+                    forEachNeighbour(i, predicate, neighbour -> columns[next[0]++] = neighbour);
+                }
+            }
+            offsets[predicate.ordinal()] = rows;
+            targets[predicate.ordinal()] = columns;
+        }
+
+        boolean listingShared = (previous != null) && !unpublished.hasListingChanges();
+        return new CompactGraph(previous, unpublished, nodes, order, listingShared ? null : listedNodes,
+                listingShared ? null : listedCategories, listingShared ? null : productsById, offsets, targets, materializer, version);
+    }
+
+    private static boolean isCopied(CompactGraph previous, BitSet changed, int index) {
+        return (previous != null) && (index < previous.getIndexBound()) && !changed.get(index);
+    }
+
+    private int compiledDegree(int index, Predicate predicate) {
+        return (vertices.get(index) == null) ? 0 : getDegree(index, predicate);
+    }
+
+    /**
+     * Returns the indices of the nodes with edges in ascending order of their sort keys.
+     *
+     * @param indexOf maps a node to its index.
+     * @return the ordered indices.
+     */
+    private int[] sortKeyOrder(ToIntFunction<Node> indexOf) {
+        int[] order = new int[nodesBySortKey.size()];
+        int position = 0;
+        for (Node n : nodesBySortKey.values()) {
+            order[position++] = indexOf.applyAsInt(n);
+        }
+        return order;
+    }
+
+    /**
+     * Checks whether the graph is currently frozen.
+     *
+     * @return true if reads are served from the compiled form.
+     */
+    public boolean isFrozen() {
+        return frozen != null;
+    }
+
+    /**
+     * Rebuilds the per-edge hash structures of a frozen graph from its compiled form, keeping all node indices.
+     */
+    private void thaw() {
+        if (frozen == null) {
+            return;
+        }
+        CompactGraph compact = frozen;
+        frozen = null;
+        for (int i = 0; i < compact.getIndexBound(); i++) {
+            Node n = compact.getNode(i);
+            if (n == null) {
+                vertices.add(null);
+                freeIndices.push(i);
+            } else {
+                Adjacency entry = new Adjacency(n, i);
+                vertices.add(entry);
+                adjacency.put(n, entry);
+            }
+        }
+        for (Predicate predicate : Predicate.values()) {
+            if (!predicate.isPrimary()) {
+                continue;
+            }
+            for (int i = 0; i < compact.getIndexBound(); i++) {
+                Node source = compact.getNode(i);
+                if (source != null) {
+                    compact.forEachNeighbour(i, predicate, neighbour -> {
+                        Node target = compact.getNode(neighbour);
+                        insert(new Edge(source, target, predicate));
+                        insert(new Edge(target, source, predicate.getInverse()));
+                    });
+                }
+            }
+        }
+    }
+
+    @Override
+    public int getIndexBound() {
+        return (frozen == null) ? vertices.size() : frozen.getIndexBound();
+    }
+
+    @Override
+    public Node getNode(int index) {
+        if (frozen != null) {
+            return frozen.getNode(index);
+        }
+        Adjacency entry = vertices.get(index);
+        return (entry == null) ? null : entry.node;
+    }
+
+    @Override
+    public int indexOf(Node node) {
+        if (frozen != null) {
+            return frozen.indexOf(node);
+        }
+        Adjacency entry = adjacency.get(node);
+        return (entry == null) ? -1 : entry.index;
+    }
+
+    @Override
+    public int getDegree(int index, Predicate predicate) {
+        if (frozen != null) {
+            return frozen.getDegree(index, predicate);
+        }
+        return vertices.get(index).outgoing(predicate).size();
+    }
+
+    @Override
+    public void forEachNeighbour(int index, Predicate predicate, IntConsumer action) {
+        if (frozen != null) {
+            frozen.forEachNeighbour(index, predicate, action);
+            return;
+        }
+        for (Edge e : vertices.get(index).outgoing(predicate)) {
+            action.accept(adjacency.get(e.target).index);
+        }
+    }
+
+    @Override
+    public void forEachSortedIndex(IntConsumer action) {
+        if (frozen != null) {
+            frozen.forEachSortedIndex(action);
+            return;
+        }
+        for (Node n : nodesBySortKey.values()) {
+            action.accept(adjacency.get(n).index);
+        }
+    }
+
+    @Override
+    public int[] getClosure(int index, Predicate predicate) {
+        return closures.get(index, predicate);
+    }
+
+    @Override
+    public int[] getMembers(int index) {
+        return memberships.get(index);
+    }
+
+    @Override
+    public int[] getMaterialized(FinalTerm term) {
+        return materializer.get(this, term);
+    }
+
+    /**
+     * Drops the cached closures and memberships and the materialized results, so the next queries compute them from the edges again. The
+     * graph itself and its hot terms are left untouched.
+     */
+    public synchronized void clearCaches() {
+        closures.clear();
+        memberships.clear();
+        materializer.clear(version);
+    }
+
+    /**
+     * Declares the terms whose results are kept materialized across modifications, e.g. the strategies applied to the most frequently
+     * recommended products. Results of terms that are no longer hot are dropped; newly hot terms are computed on their next lookup or
+     * {@linkplain #materialize() refresh}.
+     *
+     * @param terms the unbounded final terms.
+     */
+    public void setHotTerms(Collection<FinalTerm> terms) {
+        materializer.setHot(terms);
+    }
+
+    /**
+     * Computes the results of all hot terms that are not materialized, e.g. after a database was loaded or a batch was applied. In
+     * concurrent mode this happens on a background thread reading the latest view, otherwise right away.
+     */
+    public void materialize() {
+        if (concurrent) {
+            materializer.refreshInBackground(this::view);
+        } else {
+            materializer.refresh(this);
+        }
+    }
+
     /**
      * Retrieves a product by its ID.
      *
      * @param id the product ID.
      * @return the product, or null if not found.
      */
+    @Override
     public Product getProductById(int id) {
         return productsById.get(id);
     }
 
+    /**
+     * Checks whether a node is the one listed under its name.
+     *
+     * @param n the node.
+     * @return true if the node is listed, false otherwise.
+     */
+    boolean isListed(Node n) {
+        return n.equals(nodesByName.get(nameKey(n)));
+    }
+
+    /**
+     * Replaces the content of an empty graph with restored nodes and edges, which are published as the frozen form right away. The
+     * per-edge hash structures are only built by the first modification.
+     *
+     * @param nodes the nodes by index, each with at least one edge.
+     * @param listed whether the node with the same index is listed under its name and id.
+     * @param offsets the row offsets per primary predicate ordinal.
+     * @param targets the target indices per primary predicate ordinal.
+     */
+    synchronized void restore(Node[] nodes, boolean[] listed, int[][] offsets, int[][] targets) {
+        touch();
+        Map<Node, Integer> indices = new HashMap<>();
+        for (int i = 0; i < nodes.length; i++) {
+            if (listed[i]) {
+                list(nodes[i]);
+                if (nodes[i] instanceof Product) {
+                    productsById.put(((Product) nodes[i]).id, (Product) nodes[i]);
+                }
+            }
+            nodesBySortKey.put(nodes[i].getSortKey(), nodes[i]);
+            indices.put(nodes[i], i);
+        }
+        frozen = new CompactGraph(nodes, sortKeyOrder(indices::get), listedNodes, listedCategories, productsById, offsets, targets,
+                materializer, version);
+        published = frozen;
+        unpublished.clear();
+    }
+
     /**
      * Resets the graph. Removes every entry.
      */
-    public void reset() {
+    public synchronized void reset() {
         this.edges.clear();
-        this.nodes.clear();
+        this.nodesByName.clear();
+        this.listedNodes.clear();
+        this.rankedNodes = null;
+        this.listedCategories.clear();
+        this.nodesBySortKey.clear();
         this.productsById.clear();
+        this.adjacency.clear();
+        this.vertices.clear();
+        this.freeIndices.clear();
+        this.frozen = null;
+        this.unpublished.all();
+        if (!concurrent) {
+            this.published = null;
+        }
+        this.closures.clear();
+        this.memberships.clear();
+        touch();
+        this.materializer.clear(version);
+        if (log != null) {
+            log.reset();
+        }
+    }
+
+    /**
+     * Returns the modification version of the graph. Every modification moves the graph to a new version, and versions are unique across
+     * all graphs, so two reads observing the same version observed the same contents.
+     *
+     * @return the current version.
+     */
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Moves the graph to a new modification version.
+     */
+    private void touch() {
+        version = VERSIONS.incrementAndGet();
+    }
+
+    /**
+     * Attaches a log recording every further modification, see {@link MutationLog#open(java.nio.file.Path, Graph)}.
+     *
+     * @param log the log, or null to stop logging.
+     */
+    void setLog(MutationLog log) {
+        this.log = log;
+    }
+
+    /**
+     * Returns the log recording the modifications of the graph.
+     *
+     * @return the log, or null if the graph is not durable.
+     */
+    public MutationLog getLog() {
+        return log;
+    }
+
+    /**
+     * Switches concurrent mode on or off. In concurrent mode {@link #view()} returns immutable snapshots instead of the graph itself.
+     * Switching it on publishes the current version.
+     *
+     * @param concurrent true to serve reads from immutable views.
+     */
+    public synchronized void setConcurrent(boolean concurrent) {
+        this.concurrent = concurrent;
+        publish();
+    }
+
+    /**
+     * Returns the view read-only commands evaluate on. In concurrent mode this is the compiled form of the latest {@linkplain #publish()
+     * published} version, which is safe to use from any thread and never changes; readers never lock, and keep seeing the previous
+     * version while a modifying command runs. Outside of concurrent mode the graph itself is returned.
+     *
+     * @return the view to read from.
+     */
+    public GraphView view() {
+        return concurrent ? published : this;
     }
 
     /**
@@ -249,4 +1173,79 @@ public class Graph {
     public void setLoaded(boolean loaded) {
         this.loaded = loaded;
     }
+
+    /**
+     * Index and outgoing and incoming edges of a single node, bucketed by predicate ordinal.
+     */
+    private static final class Adjacency {
+        private final Node node;
+        private final int index;
+        private final Set<Edge>[] outgoing;
+        private final Set<Edge>[] incoming;
+        private int degree;
+
+        Adjacency(Node node, int index) {
+            this.node = node;
+            this.index = index;
+            outgoing = buckets();
+            incoming = buckets();
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static Set<Edge>[] buckets() {
+            return new Set[PREDICATE_COUNT];
+        }
+
+        Set<Edge> outgoing(Predicate predicate) {
+            return view(outgoing, predicate);
+        }
+
+        Set<Edge> incoming(Predicate predicate) {
+            return view(incoming, predicate);
+        }
+
+        void addOutgoing(Edge e) {
+            if (bucket(outgoing, e.predicate).add(e)) {
+                degree++;
+            }
+        }
+
+        void addIncoming(Edge e) {
+            if (bucket(incoming, e.predicate).add(e)) {
+                degree++;
+            }
+        }
+
+        void removeOutgoing(Edge e) {
+            if (bucket(outgoing, e.predicate).remove(e)) {
+                degree--;
+            }
+        }
+
+        void removeIncoming(Edge e) {
+            if (bucket(incoming, e.predicate).remove(e)) {
+                degree--;
+            }
+        }
+
+        boolean isEmpty() {
+            return degree == 0;
+        }
+
+        private static Set<Edge> view(Set<Edge>[] buckets, Predicate predicate) {
+            Set<Edge> bucket = buckets[predicate.ordinal()];
+            if (bucket == null) {
+                return Collections.emptySet();
+            }
+            return Collections.unmodifiableSet(bucket);
+        }
+
+        private static Set<Edge> bucket(Set<Edge>[] buckets, Predicate predicate) {
+            int index = predicate.ordinal();
+            if (buckets[index] == null) {
+                buckets[index] = new HashSet<>();
+            }
+            return buckets[index];
+        }
+    }
 }
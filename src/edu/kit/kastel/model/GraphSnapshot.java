@@ -0,0 +1,269 @@
+package edu.kit.kastel.model;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Utility class storing a graph in a compact binary snapshot file and restoring it from one.
+ *
+ * <p>
+ * The file starts with a magic number and a format version, followed by the node table and one compressed sparse row block per primary
+ * predicate. A node entry consists of a flag byte, the product id for products and the length-prefixed UTF-8 name. A block consists of the
+ * edge count, the {@code nodeCount + 1} row offsets and the target node indices. Inverse edges are not stored, they are recreated while
+ * restoring. All numbers are big-endian.
+ * </p>
+ *
+ * <p>
+ * Snapshots are read through a memory-mapped buffer, so restoring a graph involves no text parsing at all. Every count and length is
+ * checked against the remaining file size before anything is allocated for it, and the row blocks are validated and then handed to the
+ * graph as its frozen form, without building the per-edge hash structures.
+ * </p>
+ *
+ * @author uupyx
+ */
+public final class GraphSnapshot {
+
+    private static final int MAGIC = 0x50525353;
+    private static final int VERSION = 1;
+    private static final int FLAG_PRODUCT = 1;
+    private static final int FLAG_LISTED = 2;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final int MINIMUM_NODE_BYTES = Byte.BYTES + Integer.BYTES;
+
+    private static final String ERROR_NOT_A_SNAPSHOT = "not a snapshot file";
+    private static final String ERROR_UNSUPPORTED_VERSION = "unsupported snapshot version %d";
+    private static final String ERROR_TOO_LARGE = "snapshot file too large";
+    private static final String ERROR_CORRUPT = "corrupt snapshot file";
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private GraphSnapshot() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Writes a snapshot of the graph while holding its writer lock. The snapshot is written to a temporary file and synced first and then
+     * moved to the target path, so an existing snapshot is never left half-written. The directory is synced after the move, so the new
+     * snapshot also survives a crash.
+     *
+     * @param graph the graph to store.
+     * @param file the target file.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(Graph graph, Path file) throws IOException {
+        synchronized (graph) {
+            int[] vertices = new int[graph.getIndexBound()];
+            int[] positions = new int[graph.getIndexBound()];
+            int nodeCount = 0;
+            for (int i = 0; i < graph.getIndexBound(); i++) {
+                if (graph.getNode(i) != null) {
+                    positions[i] = nodeCount;
+                    vertices[nodeCount++] = i;
+                }
+            }
+
+            Path temporary = file.resolveSibling(file.getFileName() + TEMPORARY_SUFFIX);
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(nodeCount);
+                for (int k = 0; k < nodeCount; k++) {
+                    Node n = graph.getNode(vertices[k]);
+                    int flags = graph.isListed(n) ? FLAG_LISTED : 0;
+                    if (n instanceof Product) {
+                        out.writeByte(flags | FLAG_PRODUCT);
+                        out.writeInt(((Product) n).id);
+                    } else {
+                        out.writeByte(flags);
+                    }
+                    byte[] name = n.name.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(name.length);
+                    out.write(name);
+                }
+
+                for (Predicate predicate : Predicate.values()) {
+                    if (!predicate.isPrimary()) {
+                        continue;
+                    }
+                    int edgeCount = 0;
+                    for (int k = 0; k < nodeCount; k++) {
+                        edgeCount += graph.getDegree(vertices[k], predicate);
+                    }
+                    out.writeInt(edgeCount);
+                    int offset = 0;
+                    out.writeInt(offset);
+                    for (int k = 0; k < nodeCount; k++) {
+                        offset += graph.getDegree(vertices[k], predicate);
+                        out.writeInt(offset);
+                    }
+                    try {
+                        for (int k = 0; k < nodeCount; k++) {
+                            graph.forEachNeighbour(vertices[k], predicate, neighbour -> writeInt(out, positions[neighbour]));
+                        }
+                    } catch (UncheckedIOException e) {
+                        throw e.getCause();
+                    }
+                }
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory(file.toAbsolutePath().getParent());
+        }
+    }
+
+    private static void writeInt(DataOutputStream out, int value) {
+        try {
+            out.writeInt(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Makes the creation, replacement or deletion of files in a directory durable. Platforms that cannot open a directory as a channel,
+     * like Windows, are skipped.
+     *
+     * @param directory the directory.
+     * @throws IOException if the directory cannot be synced.
+     */
+    static void syncDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Replaces the content of the graph with the content of a snapshot while holding its writer lock. The whole snapshot is validated
+     * before the graph is reset, so if it cannot be read or is invalid, the graph is left unchanged.
+     *
+     * @param file the snapshot file.
+     * @param graph the graph to restore into.
+     * @throws IOException if the file cannot be read or is not a valid snapshot.
+     */
+    public static void read(Path file, Graph graph) throws IOException {
+        synchronized (graph) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                if (channel.size() > Integer.MAX_VALUE) {
+                    throw new IOException(ERROR_TOO_LARGE);
+                }
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                restore(buffer, graph);
+            } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | NegativeArraySizeException e) {
+                throw new IOException(ERROR_CORRUPT, e);
+            }
+        }
+    }
+
+    private static void restore(ByteBuffer buffer, Graph graph) throws IOException {
+        if ((buffer.remaining() < Integer.BYTES) || (buffer.getInt() != MAGIC)) {
+            throw new IOException(ERROR_NOT_A_SNAPSHOT);
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException(String.format(ERROR_UNSUPPORTED_VERSION, version));
+        }
+
+        int nodeCount = buffer.getInt();
+        checkAvailable(buffer, nodeCount, MINIMUM_NODE_BYTES);
+        Node[] nodes = new Node[nodeCount];
+        boolean[] listed = new boolean[nodeCount];
+        Set<Node> distinct = new HashSet<>();
+        for (int i = 0; i < nodeCount; i++) {
+            int flags = buffer.get();
+            int id = ((flags & FLAG_PRODUCT) != 0) ? buffer.getInt() : 0;
+            int length = buffer.getInt();
+            checkAvailable(buffer, length, 1);
+            byte[] name = new byte[length];
+            buffer.get(name);
+            String decoded = new String(name, StandardCharsets.UTF_8);
+            nodes[i] = ((flags & FLAG_PRODUCT) != 0) ? new Product(decoded, id) : new Category(decoded);
+            listed[i] = (flags & FLAG_LISTED) != 0;
+            if (!distinct.add(nodes[i])) {
+                throw new IOException(ERROR_CORRUPT);
+            }
+        }
+
+        int[][] offsets = new int[Predicate.values().length][];
+        int[][] targets = new int[Predicate.values().length][];
+        int[] degrees = new int[nodeCount];
+        for (Predicate predicate : Predicate.values()) {
+            if (!predicate.isPrimary()) {
+                continue;
+            }
+            int edgeCount = buffer.getInt();
+            checkAvailable(buffer, (long) nodeCount + 1 + edgeCount, Integer.BYTES);
+            int[] rows = readInts(buffer, nodeCount + 1);
+            int[] columns = readInts(buffer, edgeCount);
+            if ((rows[0] != 0) || (rows[nodeCount] != edgeCount)) {
+                throw new IOException(ERROR_CORRUPT);
+            }
+            for (int i = 0; i < nodeCount; i++) {
+                if (rows[i] > rows[i + 1]) {
+                    throw new IOException(ERROR_CORRUPT);
+                }
+                Arrays.sort(columns, rows[i], rows[i + 1]);
+                for (int k = rows[i]; k < rows[i + 1]; k++) {
+                    int target = columns[k];
+                    if ((target < 0) || (target >= nodeCount) || (target == i) || ((k > rows[i]) && (columns[k - 1] == target))
+                            || !predicate.validate(nodes[i], nodes[target])) {
+                        throw new IOException(ERROR_CORRUPT);
+                    }
+                    degrees[i]++;
+                    degrees[target]++;
+                }
+            }
+            offsets[predicate.ordinal()] = rows;
+            targets[predicate.ordinal()] = columns;
+        }
+        for (int degree : degrees) {
+            if (degree == 0) {
+                throw new IOException(ERROR_CORRUPT);
+            }
+        }
+
+        graph.reset();
+        graph.restore(nodes, listed, offsets, targets);
+    }
+
+    /**
+     * Checks that the buffer holds at least the given number of items of a minimum size, before anything is allocated for them.
+     */
+    private static void checkAvailable(ByteBuffer buffer, long count, int minimumBytes) throws IOException {
+        if ((count < 0) || (count * minimumBytes > buffer.remaining())) {
+            throw new IOException(ERROR_CORRUPT);
+        }
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + (count * Integer.BYTES));
+        return values;
+    }
+}
@@ -0,0 +1,138 @@
+package edu.kit.kastel.model;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * Read-only access to a graph, as used by the recommendation terms and the listing commands.
+ *
+ * <p>
+ * Every node that has at least one edge is identified by a dense index between zero and {@link #getIndexBound()}. Indices of removed nodes
+ * may be unused, for those {@link #getNode(int)} returns null. Neighbours are the targets of the outgoing edges of a node.
+ * </p>
+ *
+ * @author uupyx
+ */
+public interface GraphView {
+
+    /**
+     * Returns an upper bound for the node indices. Every index in use is smaller than the bound.
+     *
+     * @return the index bound.
+     */
+    int getIndexBound();
+
+    /**
+     * Returns the node with the given index.
+     *
+     * @param index the node index.
+     * @return the node, or null if the index is unused.
+     */
+    Node getNode(int index);
+
+    /**
+     * Returns the index of a node.
+     *
+     * @param node the node.
+     * @return the index, or -1 if the node has no edges.
+     */
+    int indexOf(Node node);
+
+    /**
+     * Retrieves a product by its ID.
+     *
+     * @param id the product ID.
+     * @return the product, or null if not found.
+     */
+    Product getProductById(int id);
+
+    /**
+     * Returns the number of outgoing edges of a node with the given predicate.
+     *
+     * @param index the node index.
+     * @param predicate the predicate.
+     * @return the number of matching edges.
+     */
+    int getDegree(int index, Predicate predicate);
+
+    /**
+     * Passes the index of every neighbour reached by an outgoing edge with the given predicate to an action.
+     *
+     * @param index the node index.
+     * @param predicate the predicate.
+     * @param action the action receiving the neighbour indices.
+     */
+    void forEachNeighbour(int index, Predicate predicate, IntConsumer action);
+
+    /**
+     * Passes the index of every node with at least one edge to an action, in ascending order of the node sort keys.
+     *
+     * @param action the action receiving the node indices.
+     */
+    void forEachSortedIndex(IntConsumer action);
+
+    /**
+     * Returns the transitive closure of a node, i.e. the indices of all products reachable by following one or more edges with the given
+     * predicate. The node itself is only contained if it lies on a cycle.
+     *
+     * @param index the node index.
+     * @param predicate the predicate to follow.
+     * @return the sorted indices of all reachable products. The array may be shared and must not be modified.
+     */
+    int[] getClosure(int index, Predicate predicate);
+
+    /**
+     * Returns the products directly contained in a category.
+     *
+     * @param index the category index.
+     * @return the sorted indices of all member products. The array may be shared and must not be modified.
+     */
+    int[] getMembers(int index);
+
+    /**
+     * Returns the materialized result of a hot term, see {@link Graph#setHotTerms(java.util.Collection)}.
+     *
+     * @param term the unbounded final term.
+     * @return the sorted indices of the recommended products, or null if the result has to be computed.
+     */
+    int[] getMaterialized(FinalTerm term);
+
+    /**
+     * Returns the modification version of the graph the view reads from.
+     *
+     * @return the version.
+     */
+    long getVersion();
+
+    /**
+     * Returns all listed nodes in sorted order.
+     *
+     * @return sorted set of nodes.
+     */
+    Set<Node> getNodes();
+
+    /**
+     * Returns the listed nodes at a range of positions in sorted order. The nodes are kept ranked by position, so a page costs no more
+     * than the nodes it contains, wherever it starts.
+     *
+     * @param offset the position of the first node.
+     * @param limit the maximum number of nodes.
+     * @return read-only list of the nodes, empty if the offset is past the last node.
+     */
+    List<Node> getNodes(long offset, long limit);
+
+    /**
+     * Returns all edges in sorted order.
+     *
+     * @return sorted set of edges.
+     */
+    Set<Edge> getEdges();
+
+    /**
+     * Returns all listed categories in sorted order.
+     *
+     * @return sorted set of categories.
+     */
+    Set<Category> getCategories();
+}
@@ -1,17 +1,21 @@
 package edu.kit.kastel.model;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import edu.kit.kastel.ui.ParseException;
 
 /**
- * Represents the intersection of two recommendation terms.
+ * Represents the intersection of recommendation terms.
  *
  * @author uupyx
  */
 public class IntersectionTerm implements Term {
-    private final Term left;
-    private final Term right;
+    private final Set<Term> operands;
 
     /**
      * Constructs an IntersectionTerm.
@@ -20,22 +24,117 @@ public class IntersectionTerm implements Term {
      * @param right the right term.
      */
     public IntersectionTerm(Term left, Term right) {
-        this.left = left;
-        this.right = right;
+        Set<Term> terms = new LinkedHashSet<>();
+        terms.add(left);
+        terms.add(right);
+        this.operands = Collections.unmodifiableSet(terms);
+    }
+
+    private IntersectionTerm(Set<Term> operands) {
+        this.operands = Collections.unmodifiableSet(operands);
     }
 
     /**
-     * Evaluates the intersection term.
+     * Evaluates the intersection term. The operands are estimated first and then evaluated from the smallest estimate upwards, stopping
+     * as soon as the intersection is empty.
      *
      * @param graph the graph.
-     * @return the intersection of the two term evaluations.
+     * @return the intersection of the operand evaluations.
      * @throws ParseException if evaluation fails.
      */
     @Override
-    public Set<Product> evaluate(Graph graph) throws ParseException {
-        Set<Product> leftSet = left.evaluate(graph);
-        Set<Product> rightSet = right.evaluate(graph);
-        leftSet.retainAll(rightSet);
-        return leftSet;
+    public ProductSet evaluate(GraphView graph) throws ParseException {
+        Term[] ordered = orderByEstimate(graph);
+        ProductSet result = ordered[0].evaluate(graph);
+        for (int i = 1; (i < ordered.length) && !result.isEmpty(); i++) {
+            result.retainAll(ordered[i].evaluate(graph));
+        }
+        return result;
+    }
+
+    /**
+     * Scores the intersection term in the same order as {@link #evaluate(GraphView)}. A product scores the sum of its scores in all
+     * operands.
+     *
+     * @param graph the graph.
+     * @return the intersection of the operand scores.
+     * @throws ParseException if evaluation fails.
+     */
+    @Override
+    public ScoredProducts score(GraphView graph) throws ParseException {
+        Term[] ordered = orderByEstimate(graph);
+        ScoredProducts result = ordered[0].score(graph);
+        for (int i = 1; (i < ordered.length) && !result.getProducts().isEmpty(); i++) {
+            result.retainAll(ordered[i].score(graph));
+        }
+        return result;
+    }
+
+    @Override
+    public void forEachFinalTerm(Consumer<FinalTerm> action) {
+        for (Term operand : operands) {
+            operand.forEachFinalTerm(action);
+        }
+    }
+
+    @Override
+    public int estimate(GraphView graph) throws ParseException {
+        int min = Integer.MAX_VALUE;
+        for (Term operand : operands) {
+            min = Math.min(min, operand.estimate(graph));
+        }
+        return min;
+    }
+
+    /**
+     * Plans the operands and merges nested intersections into this one, dropping duplicate operands.
+     *
+     * @return the planned term.
+     */
+    @Override
+    public Term plan() {
+        Set<Term> planned = new LinkedHashSet<>();
+        for (Term operand : operands) {
+            Term term = operand.plan();
+            if (term instanceof IntersectionTerm) {
+                planned.addAll(((IntersectionTerm) term).operands);
+            } else {
+                planned.add(term);
+            }
+        }
+        return (planned.size() == 1) ? planned.iterator().next() : new IntersectionTerm(planned);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IntersectionTerm)) {
+            return false;
+        }
+        IntersectionTerm other = (IntersectionTerm) o;
+        return operands.equals(other.operands);
+    }
+
+    @Override
+    public int hashCode() {
+        return operands.hashCode();
+    }
+
+    private Term[] orderByEstimate(GraphView graph) throws ParseException {
+        Term[] terms = operands.toArray(new Term[0]);
+        int[] estimates = new int[terms.length];
+        Integer[] order = new Integer[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            estimates[i] = terms[i].estimate(graph);
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(i -> estimates[i]));
+        Term[] ordered = new Term[terms.length];
+        for (int i = 0; i < order.length; i++) {
+            ordered[i] = terms[order[i]];
+        }
+        return ordered;
     }
 }
@@ -0,0 +1,230 @@
+package edu.kit.kastel.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Precomputed results of the strategies applied to the most frequently recommended products.
+ *
+ * <p>
+ * The caller declares which unbounded {@link FinalTerm}s are hot. Their results are stored as sorted index arrays together with the edges
+ * they were computed from, and outlive modifications of the graph that do not touch those edges: like a cached closure, an entry is only
+ * dropped when an edge it depends on is added or removed, and is computed again on its next lookup or the next refresh. Entries remember
+ * the version they were computed on, so a view of an older version never reads a newer result, and a result computed on a view that is
+ * older than the latest modification is not stored.
+ * </p>
+ *
+ * @author uupyx
+ */
+final class Materializer {
+
+    private static final String THREAD_NAME = "materializer";
+    private static final ExecutorService BACKGROUND = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, THREAD_NAME);
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<FinalTerm, Entry> entries;
+    private final AtomicBoolean scheduled;
+    private Set<FinalTerm> hot;
+    private long invalidated;
+
+    /**
+     * Constructs an empty Materializer without hot terms.
+     */
+    Materializer() {
+        this.entries = new HashMap<>();
+        this.scheduled = new AtomicBoolean();
+        this.hot = Set.of();
+    }
+
+    /**
+     * Replaces the hot terms. Entries of terms that are no longer hot are dropped.
+     *
+     * @param terms the hot terms.
+     */
+    synchronized void setHot(Collection<FinalTerm> terms) {
+        hot = new HashSet<>(terms);
+        entries.keySet().retainAll(hot);
+    }
+
+    /**
+     * Returns the result of a hot term, computing it if it is not materialized yet.
+     *
+     * @param graph the view the result is read for.
+     * @param term the term.
+     * @return the sorted indices of the recommended products, or null if the term is not hot or its result is newer than the view.
+     */
+    int[] get(GraphView graph, FinalTerm term) {
+        synchronized (this) {
+            if (!hot.contains(term)) {
+                return null;
+            }
+            Entry entry = entries.get(term);
+            if (entry != null) {
+                return (entry.version <= graph.getVersion()) ? entry.result : null;
+            }
+        }
+        Entry entry = store(graph, term);
+        return (entry == null) ? null : entry.result;
+    }
+
+    /**
+     * Computes the results of all hot terms that are not materialized.
+     *
+     * @param graph the view to compute on.
+     */
+    void refresh(GraphView graph) {
+        List<FinalTerm> missing = new ArrayList<>();
+        synchronized (this) {
+            for (FinalTerm term : hot) {
+                if (!entries.containsKey(term)) {
+                    missing.add(term);
+                }
+            }
+        }
+        for (FinalTerm term : missing) {
+            store(graph, term);
+        }
+    }
+
+    /**
+     * Computes the results of all hot terms that are not materialized on a background thread, unless such a refresh is already pending.
+     *
+     * @param view supplies the view to compute on once the refresh starts.
+     */
+    void refreshInBackground(Supplier<GraphView> view) {
+        if (scheduled.compareAndSet(false, true)) {
+            BACKGROUND.execute(() -> {
+                scheduled.set(false);
+                refresh(view.get());
+            });
+        }
+    }
+
+    /**
+     * Drops every entry depending on an edge with a predicate starting at a node, because such an edge was added or removed.
+     *
+     * @param predicate the predicate of the edge.
+     * @param source the source node index of the edge.
+     * @param version the version of the modification.
+     */
+    synchronized void invalidate(Predicate predicate, int source, long version) {
+        invalidated = version;
+        entries.values().removeIf(entry -> entry.dependsOn(predicate, source));
+    }
+
+    /**
+     * Drops every entry depending on an edge with a predicate starting at any of the given nodes, in a single pass.
+     *
+     * @param predicate the predicate of the changed edges.
+     * @param sources the source node indices of the changed edges.
+     * @param version the version of the modification.
+     */
+    synchronized void invalidate(Predicate predicate, BitSet sources, long version) {
+        invalidated = version;
+        if (!sources.isEmpty()) {
+            entries.values().removeIf(entry -> entry.dependsOn(predicate, sources));
+        }
+    }
+
+    /**
+     * Drops every entry referring to a node whose index is released.
+     *
+     * @param index the node index.
+     * @param version the version of the modification.
+     */
+    synchronized void forget(int index, long version) {
+        invalidated = version;
+        entries.values().removeIf(entry -> entry.refersTo(index));
+    }
+
+    /**
+     * Drops all entries. The hot terms are kept.
+     *
+     * @param version the version of the modification.
+     */
+    synchronized void clear(long version) {
+        invalidated = version;
+        entries.clear();
+    }
+
+    private Entry store(GraphView graph, FinalTerm term) {
+        Entry entry = term.materialize(graph);
+        if (entry != null) {
+            synchronized (this) {
+                if (hot.contains(term) && (entry.version >= invalidated)) {
+                    entries.put(term, entry);
+                }
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Result of a term together with the edges it was computed from: the edges with the reference predicate starting at the reference
+     * product, and the edges with the source predicate starting at any of the source nodes.
+     */
+    static final class Entry {
+        private final int reference;
+        private final int[] result;
+        private final Predicate referencePredicate;
+        private final Predicate sourcePredicate;
+        private final int[] sources;
+        private final long version;
+
+        /**
+         * Constructs an Entry.
+         *
+         * @param reference the index of the reference product.
+         * @param result the sorted indices of the recommended products.
+         * @param referencePredicate the predicate followed from the reference product.
+         * @param sourcePredicate the predicate followed from the source nodes.
+         * @param sources the sorted indices of the nodes the result was collected from.
+         * @param version the version of the view the result was computed on.
+         */
+        Entry(int reference, int[] result, Predicate referencePredicate, Predicate sourcePredicate, int[] sources, long version) {
+            this.reference = reference;
+            this.result = result;
+            this.referencePredicate = referencePredicate;
+            this.sourcePredicate = sourcePredicate;
+            this.sources = sources;
+            this.version = version;
+        }
+
+        private boolean dependsOn(Predicate predicate, int source) {
+            return ((predicate == referencePredicate) && (source == reference))
+                    || ((predicate == sourcePredicate) && (Arrays.binarySearch(sources, source) >= 0));
+        }
+
+        private boolean dependsOn(Predicate predicate, BitSet changed) {
+            if ((predicate == referencePredicate) && changed.get(reference)) {
+                return true;
+            }
+            if (predicate == sourcePredicate) {
+                for (int source : sources) {
+                    if (changed.get(source)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private boolean refersTo(int index) {
+            return (index == reference) || (Arrays.binarySearch(result, index) >= 0) || (Arrays.binarySearch(sources, index) >= 0);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package edu.kit.kastel.model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Index from a category to the products it directly contains.
+ *
+ * <p>
+ * The members of a category are collected on first use into a sorted index array, which is shared by all later lookups. Adding or
+ * removing a {@link Predicate#CONTAINS} edge drops the array of its source category, so it is rebuilt on the next lookup. The reverse
+ * direction, from a product to its categories, is served by the {@link Predicate#CONTAINED_IN} adjacency.
+ * </p>
+ *
+ * @author uupyx
+ */
+final class MembershipIndex {
+
+    private final GraphView graph;
+    private final Map<Integer, int[]> members;
+
+    /**
+     * Constructs an empty MembershipIndex.
+     *
+     * @param graph the view the memberships are read from.
+     */
+    MembershipIndex(GraphView graph) {
+        this.graph = graph;
+        this.members = new HashMap<>();
+    }
+
+    /**
+     * Returns the products directly contained in a category, collecting them if necessary.
+     *
+     * @param category the category index.
+     * @return the sorted member indices. The array is shared and must not be modified.
+     */
+    synchronized int[] get(int category) {
+        int[] result = members.get(category);
+        if (result == null) {
+            result = collect(category);
+            members.put(category, result);
+        }
+        return result;
+    }
+
+    /**
+     * Drops the members of a category, because one of its {@link Predicate#CONTAINS} edges was added or removed.
+     *
+     * @param category the category index.
+     */
+    synchronized void invalidate(int category) {
+        members.remove(category);
+    }
+
+    /**
+     * Takes over the members of the previous compiled form of the graph for every category whose {@link Predicate#CONTAINS} edges did not
+     * change since then. Has to be called before the index is shared.
+     *
+     * @param previous the index of the previous compiled form.
+     * @param changes the modifications since the previous compiled form.
+     */
+    synchronized void inherit(MembershipIndex previous, ChangeSet changes) {
+        BitSet changed = changes.getSources(Predicate.CONTAINS);
+        BitSet released = changes.getReleased();
+        synchronized (previous) {
+            for (Map.Entry<Integer, int[]> entry : previous.members.entrySet()) {
+                if (!changed.get(entry.getKey()) && !released.get(entry.getKey())) {
+                    members.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops all memberships.
+     */
+    synchronized void clear() {
+        members.clear();
+    }
+
+    private int[] collect(int category) {
+        int[] collected = new int[graph.getDegree(category, Predicate.CONTAINS)];
+        int[] size = {0};
+        graph.forEachNeighbour(category, Predicate.CONTAINS, member -> {
+            if (graph.getNode(member) instanceof Product) {
+                collected[size[0]++] = member;
+            }
+        });
+        int[] result = Arrays.copyOf(collected, size[0]);
+        Arrays.sort(result);
+        return result;
+    }
+}
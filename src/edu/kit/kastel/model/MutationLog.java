@@ -0,0 +1,534 @@
+package edu.kit.kastel.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the modifications of a graph, which together with a snapshot makes the graph durable across restarts.
+ *
+ * <p>
+ * A data directory holds one generation of files: a snapshot {@code snapshot.<n>}, if any, and the log {@code mutations.<n>} of the edges
+ * added and removed since. The changes made while executing one command are collected and {@linkplain #seal() sealed} into a single
+ * record while the writer lock is held, so a command is recovered completely or not at all. {@link #commit()} then makes the sealed
+ * records durable with one {@code force} for all records sealed so far, so concurrent writers share a single sync.
+ * </p>
+ *
+ * <p>
+ * If a record cannot be written or synced, every record that is not durable yet is rolled back: the inverse changes are applied to the
+ * graph, the log is cut back to its durable part, and the commands those records belong to fail. The graph therefore never holds changes
+ * that would be lost on recovery.
+ * </p>
+ *
+ * <p>
+ * A record consists of the payload length, the payload and its CRC-32. The payload is a sequence of changes, each an operation byte, the
+ * predicate ordinal and the source and target node encoded as in a {@link GraphSnapshot}. Recovery stops at the first incomplete or
+ * corrupt record, which can only be the last one written before a crash, and cuts it off. A record the graph rejects is corrupt as well.
+ * </p>
+ *
+ * <p>
+ * Once the log outgrows the snapshot, or after the graph was reset by loading a database or snapshot, the log is compacted: the graph is
+ * written to the snapshot of the next generation and logging continues in a new, empty log. Creating that log completes the new
+ * generation, and the previous one is deleted only afterwards, so a crash at any point leaves a complete generation behind. The directory
+ * is synced after every new file, so the new generation survives a crash as well. Changes made after a reset are not logged at all,
+ * since the following compaction stores them anyway; a compaction that fails is retried by the next commit.
+ * </p>
+ *
+ * @author uupyx
+ */
+public final class MutationLog implements AutoCloseable {
+
+    private static final String SNAPSHOT_PREFIX = "snapshot.";
+    private static final String LOG_PREFIX = "mutations.";
+    private static final int OPERATION_ADD = 1;
+    private static final int OPERATION_REMOVE = 2;
+    private static final int FLAG_PRODUCT = 1;
+    private static final int RECORD_OVERHEAD = 2 * Integer.BYTES;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long MINIMUM_COMPACTION_SIZE = 1 << 24;
+    private static final String ERROR_CORRUPT = "corrupt mutation log";
+    private static final String ERROR_ROLLED_BACK = "mutation log failed, changes rolled back";
+
+    private final Path directory;
+    private final Graph graph;
+    private final Object syncLock = new Object();
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private final DataOutputStream changes = new DataOutputStream(pending);
+    private long generation;
+    private FileChannel channel;
+    private DataOutputStream out;
+    private long size;
+    private long snapshotSize;
+    private long sealed;
+    private long synced;
+    private long syncedSize;
+    private boolean compactionPending;
+
+    /**
+     * The payloads of the records that are sealed but not durable yet, by record number.
+     */
+    private final NavigableMap<Long, byte[]> unsynced = new TreeMap<>();
+
+    /**
+     * The ranges of rolled back record numbers, each from an exclusive start to an inclusive end.
+     */
+    private final NavigableMap<Long, Long> rolledBack = new TreeMap<>();
+
+    /**
+     * Whether a write or sync failed and the records that are not durable have to be rolled back before the log can be used again.
+     */
+    private volatile boolean failed;
+
+    private MutationLog(Path directory, Graph graph, long generation, long size) throws IOException {
+        this.directory = directory;
+        this.graph = graph;
+        this.generation = generation;
+        this.size = size;
+        this.syncedSize = size;
+        Path snapshot = snapshot(generation);
+        this.snapshotSize = Files.exists(snapshot) ? Files.size(snapshot) : 0;
+        open(log(generation));
+    }
+
+    /**
+     * Recovers a graph from a data directory and attaches a log to it, which records all further modifications. The graph is restored
+     * from the snapshot of the latest generation and the complete records of its log. Files of other generations are deleted.
+     *
+     * @param directory the data directory, created if it does not exist.
+     * @param graph the empty graph to recover into.
+     * @return the attached log.
+     * @throws IOException if the directory or the snapshot cannot be read, or the log cannot be opened.
+     */
+    public static MutationLog open(Path directory, Graph graph) throws IOException {
+        Files.createDirectories(directory);
+        long generation = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(SNAPSHOT_PREFIX)) {
+                    generation = Math.max(generation, parseGeneration(file, SNAPSHOT_PREFIX));
+                } else if (name.startsWith(LOG_PREFIX)) {
+                    generation = Math.max(generation, parseGeneration(file, LOG_PREFIX));
+                }
+            }
+        }
+
+        MutationLog log;
+        synchronized (graph) {
+            boolean recovered = false;
+            Path snapshot = directory.resolve(SNAPSHOT_PREFIX + generation);
+            if (Files.exists(snapshot)) {
+                GraphSnapshot.read(snapshot, graph);
+                recovered = true;
+            }
+            long size = 0;
+            Path file = directory.resolve(LOG_PREFIX + generation);
+            if (Files.exists(file)) {
+                size = replay(file, graph);
+                try (FileChannel truncated = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    truncated.truncate(size);
+                }
+                recovered |= size > 0;
+            }
+            if (recovered) {
+                graph.freeze();
+                graph.setLoaded(true);
+            }
+            log = new MutationLog(directory, graph, generation, size);
+            graph.setLog(log);
+        }
+        log.deleteOtherGenerations();
+        return log;
+    }
+
+    private static long parseGeneration(Path file, String prefix) {
+        try {
+            return Long.parseLong(file.getFileName().toString().substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Applies every complete record of a log file to the graph, up to the first record that is corrupt or rejected by the graph.
+     *
+     * @return the length of the valid part of the file.
+     */
+    private static long replay(Path file, Graph graph) throws IOException {
+        long length = Files.size(file);
+        long valid = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+            while (valid + RECORD_OVERHEAD <= length) {
+                int payloadLength = in.readInt();
+                if ((payloadLength < 0) || (valid + RECORD_OVERHEAD + payloadLength > length)) {
+                    break;
+                }
+                byte[] payload = new byte[payloadLength];
+                in.readFully(payload);
+                int checksum = in.readInt();
+                if ((checksum != checksum(payload)) || !replay(payload, graph)) {
+                    break;
+                }
+                valid += RECORD_OVERHEAD + payloadLength;
+            }
+        } catch (EOFException e) {
+            return valid;
+        }
+        return valid;
+    }
+
+    private static boolean replay(byte[] payload, Graph graph) {
+        try {
+            return graph.apply(decode(payload)) < 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static Batch decode(byte[] payload) throws IOException {
+        Batch batch = new Batch();
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        Predicate[] predicates = Predicate.values();
+        while (in.available() > 0) {
+            int operation = in.readByte();
+            int predicate = in.readByte();
+            if ((predicate < 0) || (predicate >= predicates.length)) {
+                throw new IOException(ERROR_CORRUPT);
+            }
+            Node source = readNode(in);
+            Node target = readNode(in);
+            Edge e = new Edge(source, target, predicates[predicate]);
+            if (operation == OPERATION_REMOVE) {
+                batch.remove(e);
+            } else {
+                batch.add(e);
+            }
+        }
+        return batch;
+    }
+
+    private static Node readNode(DataInputStream in) throws IOException {
+        int flags = in.readByte();
+        int id = ((flags & FLAG_PRODUCT) != 0) ? in.readInt() : 0;
+        int length = in.readInt();
+        if ((length < 0) || (length > in.available())) {
+            throw new IOException(ERROR_CORRUPT);
+        }
+        byte[] name = new byte[length];
+        in.readFully(name);
+        String decoded = new String(name, StandardCharsets.UTF_8);
+        return ((flags & FLAG_PRODUCT) != 0) ? new Product(decoded, id) : new Category(decoded);
+    }
+
+    private static void writeNode(DataOutputStream out, Node n) throws IOException {
+        if (n instanceof Product) {
+            out.writeByte(FLAG_PRODUCT);
+            out.writeInt(((Product) n).id);
+        } else {
+            out.writeByte(0);
+        }
+        byte[] name = n.name.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(name.length);
+        out.write(name);
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Records an edge that was added to the graph.
+     *
+     * @param e the added edge.
+     */
+    synchronized void added(Edge e) {
+        change(OPERATION_ADD, e);
+    }
+
+    /**
+     * Records an edge that was removed from the graph. Only the edge itself is recorded; replaying the removal removes its inverse as well.
+     *
+     * @param e the removed edge.
+     */
+    synchronized void removed(Edge e) {
+        change(OPERATION_REMOVE, e);
+    }
+
+    /**
+     * Records that the graph was reset. All changes up to the next compaction are covered by its snapshot and are not logged, and records
+     * that are not durable yet are no longer undone if they fail, since the reset replaced their changes anyway.
+     */
+    synchronized void reset() {
+        compactionPending = true;
+        pending.reset();
+        unsynced.clear();
+    }
+
+    private void change(int operation, Edge e) {
+        if (compactionPending) {
+            return;
+        }
+        try {
+            changes.writeByte(operation);
+            changes.writeByte(e.predicate.ordinal());
+            writeNode(changes, e.source);
+            writeNode(changes, e.target);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    /**
+     * Writes the changes recorded since the last call as one record. Has to be called while holding the writer lock of the graph, at the
+     * end of every modification that has to be recovered as a whole.
+     *
+     * @return the number of the record to pass to {@link #commit(long)}, 0 if no changes were recorded.
+     * @throws IOException if the record cannot be written, after the changes were rolled back.
+     */
+    public long seal() throws IOException {
+        try {
+            return write();
+        } catch (IOException e) {
+            rollback();
+            throw e;
+        }
+    }
+
+    private synchronized long write() throws IOException {
+        if (pending.size() == 0) {
+            return 0;
+        }
+        byte[] payload = pending.toByteArray();
+        pending.reset();
+        long record = ++sealed;
+        unsynced.put(record, payload);
+        try {
+            out.writeInt(payload.length);
+            out.write(payload);
+            out.writeInt(checksum(payload));
+        } catch (IOException e) {
+            failed = true;
+            throw e;
+        }
+        size += RECORD_OVERHEAD + payload.length;
+        return record;
+    }
+
+    /**
+     * Makes a sealed record durable, together with every record sealed before it, and compacts the log if it is due. If another thread
+     * synced the record meanwhile, the call returns without syncing again, so concurrent commits are grouped into one sync.
+     *
+     * @param record the number returned by {@link #seal()}.
+     * @throws IOException if the record was rolled back because it could not be synced, or the log cannot be compacted.
+     */
+    public void commit(long record) throws IOException {
+        IOException failure = null;
+        synchronized (syncLock) {
+            if ((synced < record) && !failed) {
+                try {
+                    sync();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+        }
+        if (failed) {
+            rollback();
+        }
+        if (isRolledBack(record)) {
+            throw (failure != null) ? failure : new IOException(ERROR_ROLLED_BACK);
+        }
+        if (isCompactionDue()) {
+            compact();
+        }
+    }
+
+    private void sync() throws IOException {
+        long reached;
+        long reachedSize;
+        synchronized (this) {
+            reached = sealed;
+            reachedSize = size;
+            try {
+                out.flush();
+            } catch (IOException e) {
+                failed = true;
+                throw e;
+            }
+        }
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            synchronized (this) {
+                failed = true;
+            }
+            throw e;
+        }
+        synchronized (this) {
+            synced = reached;
+            syncedSize = reachedSize;
+            unsynced.headMap(reached, true).clear();
+        }
+    }
+
+    /**
+     * Rolls back every change that is not durable after a write or sync failed: the unsealed changes and all records sealed since the
+     * last sync are undone in reverse order, and the log is cut back to its durable part. The commits of the undone records fail.
+     *
+     * @throws IOException if the log cannot be cut back, in which case it stays failed and the next failure retries.
+     */
+    private void rollback() throws IOException {
+        synchronized (graph) {
+            synchronized (syncLock) {
+                synchronized (this) {
+                    if (!failed) {
+                        return;
+                    }
+                    List<byte[]> records = new ArrayList<>(unsynced.values());
+                    records.add(pending.toByteArray());
+                    pending.reset();
+                    unsynced.clear();
+                    if (sealed > synced) {
+                        rolledBack.put(synced, sealed);
+                        synced = sealed;
+                    }
+                    graph.setLog(null);
+                    try {
+                        for (int i = records.size() - 1; i >= 0; i--) {
+                            graph.apply(invert(decode(records.get(i))));
+                        }
+                    } finally {
+                        graph.setLog(this);
+                        graph.publish();
+                    }
+                    out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+                    channel.truncate(syncedSize);
+                    size = syncedSize;
+                    failed = false;
+                }
+            }
+        }
+    }
+
+    private synchronized boolean isRolledBack(long record) {
+        Map.Entry<Long, Long> range = rolledBack.lowerEntry(record);
+        return (range != null) && (record <= range.getValue());
+    }
+
+    private static Batch invert(Batch batch) {
+        Batch inverse = new Batch();
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            if (batch.isRemoval(i)) {
+                inverse.add(batch.getEdge(i));
+            } else {
+                inverse.remove(batch.getEdge(i));
+            }
+        }
+        return inverse;
+    }
+
+    private synchronized boolean isCompactionDue() {
+        return compactionPending || (size > Math.max(MINIMUM_COMPACTION_SIZE, snapshotSize));
+    }
+
+    /**
+     * Writes the graph into the snapshot of the next generation and continues with an empty log, then deletes the previous generation.
+     * The content of a graph that was never loaded completely cannot be observed, so no snapshot is written for it.
+     *
+     * @throws IOException if the snapshot or the new log cannot be written.
+     */
+    public void compact() throws IOException {
+        synchronized (graph) {
+            synchronized (syncLock) {
+                long next = generation + 1;
+                Path snapshot = snapshot(next);
+                if (graph.isLoaded()) {
+                    GraphSnapshot.write(graph, snapshot);
+                }
+                synchronized (this) {
+                    out.close();
+                    open(log(next));
+                    generation = next;
+                    size = 0;
+                    snapshotSize = Files.exists(snapshot) ? Files.size(snapshot) : 0;
+                    compactionPending = false;
+                    pending.reset();
+                    unsynced.clear();
+                    synced = sealed;
+                    syncedSize = 0;
+                }
+            }
+        }
+        deleteOtherGenerations();
+    }
+
+    /**
+     * Syncs the log and closes it.
+     *
+     * @throws IOException if the log cannot be synced.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                write();
+                out.flush();
+                channel.force(false);
+                out.close();
+            }
+        }
+    }
+
+    private void open(Path file) throws IOException {
+        boolean created = !Files.exists(file);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        OutputStream stream = Channels.newOutputStream(channel);
+        out = new DataOutputStream(new BufferedOutputStream(stream, BUFFER_SIZE));
+        if (created) {
+            GraphSnapshot.syncDirectory(directory);
+        }
+    }
+
+    private synchronized void deleteOtherGenerations() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                boolean stale = (name.startsWith(SNAPSHOT_PREFIX) && (parseGeneration(file, SNAPSHOT_PREFIX) != generation))
+                        || (name.startsWith(LOG_PREFIX) && (parseGeneration(file, LOG_PREFIX) != generation));
+                if (stale) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private Path snapshot(long index) {
+        return directory.resolve(SNAPSHOT_PREFIX + index);
+    }
+
+    private Path log(long index) {
+        return directory.resolve(LOG_PREFIX + index);
+    }
+}
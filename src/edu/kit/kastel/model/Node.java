@@ -3,11 +3,18 @@ package edu.kit.kastel.model;
 /**
  * Abstract class representing a node.
  *
+ * <p>
+ * Node names are case-insensitive. The lower-cased name is computed once on construction, so hashing, comparing and printing a node
+ * never lower-cases its name again.
+ * </p>
+ *
  * @author uupyx
  */
 public abstract class Node {
     /** The name of the node. */
-    public String name;
+    public final String name;
+    /** The lower-cased name of the node. */
+    protected final String canonicalName;
 
     /**
      * Constructs a node with the given name.
@@ -16,6 +23,16 @@ public abstract class Node {
      */
     public Node(String name) {
         this.name = name;
+        this.canonicalName = name.toLowerCase();
+    }
+
+    /**
+     * Returns the lower-cased name, which identifies the node case-insensitively.
+     *
+     * @return canonical name.
+     */
+    public String getCanonicalName() {
+        return canonicalName;
     }
 
     /**
@@ -97,6 +97,16 @@ public enum Predicate {
         return inverse;
     }
 
+    /**
+     * Checks whether this predicate is the primary direction of its inverse pair. Every edge is stored together with its inverse, so the
+     * edges of the primary predicates alone describe the whole graph.
+     *
+     * @return true if this predicate precedes its inverse.
+     */
+    public boolean isPrimary() {
+        return ordinal() < inverse.ordinal();
+    }
+
     /**
      * Validates the relationship between source and target nodes.
      *
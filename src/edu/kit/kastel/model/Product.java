@@ -13,6 +13,10 @@ public class Product extends Node {
     /** The product identifier. */
     public final int id;
 
+    private final int hash;
+    private String displayName;
+    private String sortKey;
+
     /**
      * Constructs a product.
      *
@@ -22,6 +26,7 @@ public class Product extends Node {
     public Product(String name, int id) {
         super(name);
         this.id = id;
+        this.hash = canonicalName.hashCode() * 31 + id;
     }
 
     /**
@@ -31,7 +36,10 @@ public class Product extends Node {
      */
     @Override
     public String getDisplayName() {
-        return name.toLowerCase() + DISPLAY_SEPARATOR + id;
+        if (displayName == null) {
+            displayName = canonicalName + DISPLAY_SEPARATOR + id;
+        }
+        return displayName;
     }
 
     /**
@@ -41,7 +49,10 @@ public class Product extends Node {
      */
     @Override
     public String getSortKey() {
-        return String.format(SORTKEY_FORMAT, name.toLowerCase(), id);
+        if (sortKey == null) {
+            sortKey = String.format(SORTKEY_FORMAT, canonicalName, id);
+        }
+        return sortKey;
     }
 
     @Override
@@ -58,11 +69,11 @@ public class Product extends Node {
             return false;
         }
         Product p = (Product) o;
-        return name.equalsIgnoreCase(p.name) && id == p.id;
+        return (hash == p.hash) && (id == p.id) && canonicalName.equals(p.canonicalName);
     }
 
     @Override
     public int hashCode() {
-        return name.toLowerCase().hashCode() * 31 + id;
+        return hash;
     }
 }
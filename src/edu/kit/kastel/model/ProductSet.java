@@ -0,0 +1,121 @@
+package edu.kit.kastel.model;
+
+import java.util.BitSet;
+
+/**
+ * Set of products identified by their node index in a {@link GraphView}.
+ *
+ * <p>
+ * The set is a bit set over the dense node indices, so union and intersection are word-wise bit operations and no product object is
+ * touched during evaluation. Products are only materialised through {@link #getProduct(GraphView, int)} when a result is printed.
+ * </p>
+ *
+ * @author uupyx
+ */
+public final class ProductSet {
+
+    private final BitSet bits;
+
+    /**
+     * Constructs an empty ProductSet for the given view.
+     *
+     * @param graph the view whose node indices are stored.
+     */
+    public ProductSet(GraphView graph) {
+        this.bits = new BitSet(graph.getIndexBound());
+    }
+
+    /**
+     * Adds a product.
+     *
+     * @param index the node index of the product.
+     */
+    public void add(int index) {
+        bits.set(index);
+    }
+
+    /**
+     * Removes a product.
+     *
+     * @param index the node index of the product.
+     */
+    public void remove(int index) {
+        bits.clear(index);
+    }
+
+    /**
+     * Checks whether a product is contained.
+     *
+     * @param index the node index of the product.
+     * @return true if the product is contained.
+     */
+    public boolean contains(int index) {
+        return bits.get(index);
+    }
+
+    /**
+     * Adds every product of another set to this set.
+     *
+     * @param other the other set.
+     */
+    public void addAll(ProductSet other) {
+        bits.or(other.bits);
+    }
+
+    /**
+     * Removes every product from this set that is not contained in another set.
+     *
+     * @param other the other set.
+     */
+    public void retainAll(ProductSet other) {
+        bits.and(other.bits);
+    }
+
+    /**
+     * Checks whether the set is empty.
+     *
+     * @return true if the set contains no product.
+     */
+    public boolean isEmpty() {
+        return bits.isEmpty();
+    }
+
+    /**
+     * Returns the number of products.
+     *
+     * @return the size of the set.
+     */
+    public int size() {
+        return bits.cardinality();
+    }
+
+    /**
+     * Returns the first index contained in the set that is greater than or equal to the given index.
+     *
+     * @param from the index to start from.
+     * @return the next contained index, or -1 if there is none.
+     */
+    public int nextIndex(int from) {
+        return bits.nextSetBit(from);
+    }
+
+    /**
+     * Returns the contained indices.
+     *
+     * @return the indices in ascending order.
+     */
+    public int[] toArray() {
+        return bits.stream().toArray();
+    }
+
+    /**
+     * Materialises the product stored under a node index.
+     *
+     * @param graph the view the indices refer to.
+     * @param index the node index.
+     * @return the product.
+     */
+    public static Product getProduct(GraphView graph, int index) {
+        return (Product) graph.getNode(index);
+    }
+}
@@ -0,0 +1,123 @@
+package edu.kit.kastel.model;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Set of recommended products together with a relevance score per product, higher scores ranking first.
+ *
+ * <p>
+ * Scores are stored in an array over the dense node indices next to a {@link ProductSet}, so combining the scores of several terms is as
+ * cheap as combining their sets. {@link #top(GraphView, int)} selects the best products with a heap bounded by the number of requested
+ * products, without sorting the whole set.
+ * </p>
+ *
+ * @author uupyx
+ */
+public final class ScoredProducts {
+
+    private final ProductSet products;
+    private final double[] scores;
+
+    /**
+     * Constructs an empty ScoredProducts for the given view.
+     *
+     * @param graph the view whose node indices are stored.
+     */
+    public ScoredProducts(GraphView graph) {
+        this.products = new ProductSet(graph);
+        this.scores = new double[graph.getIndexBound()];
+    }
+
+    /**
+     * Adds a product, or raises its score if it is already contained.
+     *
+     * @param index the node index of the product.
+     * @param score the score to add.
+     */
+    public void add(int index, double score) {
+        products.add(index);
+        scores[index] += score;
+    }
+
+    /**
+     * Removes a product.
+     *
+     * @param index the node index of the product.
+     */
+    public void remove(int index) {
+        products.remove(index);
+        scores[index] = 0;
+    }
+
+    /**
+     * Adds every product of another set to this set, summing the scores of products contained in both.
+     *
+     * @param other the other set.
+     */
+    public void addAll(ScoredProducts other) {
+        for (int i = other.products.nextIndex(0); i >= 0; i = other.products.nextIndex(i + 1)) {
+            add(i, other.scores[i]);
+        }
+    }
+
+    /**
+     * Removes every product that is not contained in another set and sums the scores of the remaining ones.
+     *
+     * @param other the other set.
+     */
+    public void retainAll(ScoredProducts other) {
+        products.retainAll(other.products);
+        for (int i = products.nextIndex(0); i >= 0; i = products.nextIndex(i + 1)) {
+            scores[i] += other.scores[i];
+        }
+    }
+
+    /**
+     * Returns the recommended products without their scores.
+     *
+     * @return the product set, backed by this object.
+     */
+    public ProductSet getProducts() {
+        return products;
+    }
+
+    /**
+     * Returns the score of a product.
+     *
+     * @param index the node index of the product.
+     * @return the score, 0 if the product is not contained.
+     */
+    public double getScore(int index) {
+        return scores[index];
+    }
+
+    /**
+     * Selects the products with the highest scores. Products with equal scores are ranked by name and id. The limit is capped at the
+     * number of products in the set, so the heap never holds more than the set does.
+     *
+     * @param graph the view the indices refer to.
+     * @param limit the maximum number of products.
+     * @return the indices of the selected products, best first.
+     */
+    public int[] top(GraphView graph, int limit) {
+        int count = Math.min(limit, products.size());
+        Comparator<Integer> rank = Comparator.<Integer>comparingDouble(i -> scores[i]).reversed()
+                .thenComparing(i -> ProductSet.getProduct(graph, i).getCanonicalName())
+                .thenComparingInt(i -> ProductSet.getProduct(graph, i).id);
+        PriorityQueue<Integer> worstFirst = new PriorityQueue<>(Math.max(1, count), rank.reversed());
+        for (int i = products.nextIndex(0); (i >= 0) && (count > 0); i = products.nextIndex(i + 1)) {
+            if (worstFirst.size() < count) {
+                worstFirst.add(i);
+            } else if (rank.compare(i, worstFirst.peek()) < 0) {
+                worstFirst.poll();
+                worstFirst.add(i);
+            }
+        }
+        int[] selected = new int[worstFirst.size()];
+        for (int k = selected.length - 1; k >= 0; k--) {
+            selected[k] = worstFirst.poll();
+        }
+        return selected;
+    }
+}
@@ -1,6 +1,6 @@
 package edu.kit.kastel.model;
 
-import java.util.Set;
+import java.util.function.Consumer;
 
 import edu.kit.kastel.ui.ParseException;
 
@@ -14,8 +14,45 @@ public interface Term {
      * Evaluates the term on the given graph.
      *
      * @param graph the graph.
-     * @return a set of recommended products.
+     * @return the set of recommended products.
      * @throws ParseException if evaluation fails.
      */
-    Set<Product> evaluate(Graph graph) throws ParseException;
+    ProductSet evaluate(GraphView graph) throws ParseException;
+
+    /**
+     * Estimates the number of products the term evaluates to, using degree statistics only. Every product id the term refers to is
+     * checked, so a term whose estimate succeeds can only fail during evaluation if a depth-limited traversal exceeds its budget.
+     *
+     * @param graph the graph.
+     * @return the estimated result size.
+     * @throws ParseException if a referenced product does not exist.
+     */
+    int estimate(GraphView graph) throws ParseException;
+
+    /**
+     * Evaluates the term on the given graph and scores every recommended product by its relevance. The scored products are the same as
+     * the ones returned by {@link #evaluate(GraphView)}.
+     *
+     * @param graph the graph.
+     * @return the recommended products with their scores.
+     * @throws ParseException if evaluation fails.
+     */
+    ScoredProducts score(GraphView graph) throws ParseException;
+
+    /**
+     * Passes every final term this term is composed of to an action, in order.
+     *
+     * @param action the action receiving the final terms.
+     */
+    void forEachFinalTerm(Consumer<FinalTerm> action);
+
+    /**
+     * Returns an equivalent term that is cheaper to evaluate, e.g. with nested unions and intersections flattened and duplicate operands
+     * removed. The result does not depend on the contents of any graph.
+     *
+     * @return the planned term.
+     */
+    default Term plan() {
+        return this;
+    }
 }
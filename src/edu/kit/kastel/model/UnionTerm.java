@@ -1,18 +1,19 @@
 package edu.kit.kastel.model;
 
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import edu.kit.kastel.ui.ParseException;
 
 /**
- * Represents the union of two recommendation terms.
+ * Represents the union of recommendation terms.
  *
  * @author uupyx
  */
 public class UnionTerm implements Term {
-    private final Term left;
-    private final Term right;
+    private final Set<Term> operands;
 
     /**
      * Constructs a UnionTerm.
@@ -21,21 +22,106 @@ public class UnionTerm implements Term {
      * @param right the right term.
      */
     public UnionTerm(Term left, Term right) {
-        this.left = left;
-        this.right = right;
+        Set<Term> terms = new LinkedHashSet<>();
+        terms.add(left);
+        terms.add(right);
+        this.operands = Collections.unmodifiableSet(terms);
+    }
+
+    private UnionTerm(Set<Term> operands) {
+        this.operands = Collections.unmodifiableSet(operands);
     }
 
     /**
-     * Evaluates the union term.
+     * Evaluates the union term. The operands are evaluated in order.
      *
      * @param graph the graph.
-     * @return the union of the two term evaluations.
+     * @return the union of the operand evaluations.
      * @throws ParseException if evaluation fails.
      */
     @Override
-    public Set<Product> evaluate(Graph graph) throws ParseException {
-        Set<Product> result = new HashSet<>(left.evaluate(graph));
-        result.addAll(right.evaluate(graph));
+    public ProductSet evaluate(GraphView graph) throws ParseException {
+        ProductSet result = null;
+        for (Term operand : operands) {
+            if (result == null) {
+                result = operand.evaluate(graph);
+            } else {
+                result.addAll(operand.evaluate(graph));
+            }
+        }
         return result;
     }
+
+    /**
+     * Scores the union term. A product scores the sum of its scores in all operands recommending it, so products recommended by several
+     * operands rank higher.
+     *
+     * @param graph the graph.
+     * @return the union of the operand scores.
+     * @throws ParseException if evaluation fails.
+     */
+    @Override
+    public ScoredProducts score(GraphView graph) throws ParseException {
+        ScoredProducts result = null;
+        for (Term operand : operands) {
+            if (result == null) {
+                result = operand.score(graph);
+            } else {
+                result.addAll(operand.score(graph));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void forEachFinalTerm(Consumer<FinalTerm> action) {
+        for (Term operand : operands) {
+            operand.forEachFinalTerm(action);
+        }
+    }
+
+    @Override
+    public int estimate(GraphView graph) throws ParseException {
+        long sum = 0;
+        for (Term operand : operands) {
+            sum += operand.estimate(graph);
+        }
+        return (int) Math.min(sum, graph.getIndexBound());
+    }
+
+    /**
+     * Plans the operands and merges nested unions into this one, dropping duplicate operands.
+     *
+     * @return the planned term.
+     */
+    @Override
+    public Term plan() {
+        Set<Term> planned = new LinkedHashSet<>();
+        for (Term operand : operands) {
+            Term term = operand.plan();
+            if (term instanceof UnionTerm) {
+                planned.addAll(((UnionTerm) term).operands);
+            } else {
+                planned.add(term);
+            }
+        }
+        return (planned.size() == 1) ? planned.iterator().next() : new UnionTerm(planned);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof UnionTerm)) {
+            return false;
+        }
+        UnionTerm other = (UnionTerm) o;
+        return operands.equals(other.operands);
+    }
+
+    @Override
+    public int hashCode() {
+        return operands.hashCode();
+    }
 }
@@ -0,0 +1,238 @@
+package edu.kit.kastel.ui;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import edu.kit.kastel.model.Edge;
+
+/**
+ * Utility class parsing a database file on several threads.
+ *
+ * <p>
+ * The file is split into byte ranges that end at line feeds. Every range is read, decoded and parsed by a worker of a thread pool into a
+ * chunk holding the edges of its lines in file order. Parsing a chunk stops at its first invalid line. Splitting at line feed bytes is safe
+ * for UTF-8, since the byte of a line feed never occurs inside a multi-byte character. Within a range, lines end at a line feed, a carriage
+ * return or both, as in a sequential load.
+ * </p>
+ *
+ * <p>
+ * Adding the edges to a graph is left to the caller, which receives the chunks in file order and thereby keeps the semantics of a
+ * sequential load. A chunk is handed over as soon as it and all chunks before it are parsed, while the workers parse at most a few chunks
+ * per thread ahead, so the text and edges held at any time do not grow with the file.
+ * </p>
+ *
+ * @author uupyx
+ */
+public final class ChunkedDatabaseParser {
+
+    private static final long MINIMUM_CHUNK_SIZE = 1 << 20;
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int CHUNKS_AHEAD_PER_THREAD = 2;
+    private static final int SCAN_BUFFER_SIZE = 1 << 12;
+    private static final byte LINE_FEED_BYTE = '\n';
+    private static final char LINE_FEED = '\n';
+    private static final char CARRIAGE_RETURN = '\r';
+    private static final int AVERAGE_LINE_LENGTH = 40;
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private ChunkedDatabaseParser() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Consumer of the chunks of a database file.
+     */
+    public interface ChunkConsumer {
+        /**
+         * Processes a single chunk.
+         *
+         * @param chunk the parsed chunk.
+         * @return true to continue with the next chunk, false to stop processing chunks.
+         */
+        boolean accept(Chunk chunk);
+    }
+
+    /**
+     * The parsed content of one byte range of a database file.
+     */
+    public static final class Chunk {
+        private final List<Edge> edges;
+        private final String invalidLine;
+        private final CharSequence text;
+        private final boolean terminated;
+
+        private Chunk(List<Edge> edges, String invalidLine, CharSequence text, boolean terminated) {
+            this.edges = edges;
+            this.invalidLine = invalidLine;
+            this.text = text;
+            this.terminated = terminated;
+        }
+
+        /**
+         * Returns the edges of all lines before the first invalid line of this chunk, in file order.
+         *
+         * @return the parsed edges.
+         */
+        public List<Edge> getEdges() {
+            return Collections.unmodifiableList(edges);
+        }
+
+        /**
+         * Returns the first line of this chunk that is not a valid edge specification.
+         *
+         * @return the invalid line, or null if every line is valid.
+         */
+        public String getInvalidLine() {
+            return invalidLine;
+        }
+
+        /**
+         * Returns the text of this chunk without its final line feed.
+         *
+         * @return the decoded text, or null if the text was not kept.
+         */
+        public CharSequence getText() {
+            return text;
+        }
+
+        /**
+         * Returns whether the byte range of this chunk ends with a line feed.
+         *
+         * @return true if the chunk ends with a line feed.
+         */
+        public boolean isTerminated() {
+            return terminated;
+        }
+    }
+
+    /**
+     * Parses a database file on a pool of worker threads and hands the chunks to a consumer on the calling thread. The consumer is
+     * expected to drop each chunk once it is processed. Once the consumer stops, the remaining chunks are not parsed.
+     *
+     * @param file the file to parse.
+     * @param threads the number of worker threads.
+     * @param keepText whether the decoded text of every chunk is kept, e.g. to echo it.
+     * @param consumer receives the chunks of the file in file order; an empty file yields no chunks.
+     * @throws IOException if the file cannot be read or is not valid UTF-8.
+     */
+    public static void parse(Path file, int threads, boolean keepText, ChunkConsumer consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<Long> boundaries = split(channel, threads);
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                Deque<Future<Chunk>> ahead = new ArrayDeque<>();
+                int next = 1;
+                boolean consuming = true;
+                while (consuming && ((next < boundaries.size()) || !ahead.isEmpty())) {
+                    while ((next < boundaries.size()) && (ahead.size() < threads * CHUNKS_AHEAD_PER_THREAD)) {
+                        long start = boundaries.get(next - 1);
+                        long end = boundaries.get(next);
+                        ahead.add(pool.submit(() -> parseChunk(channel, start, end, keepText)));
+                        next++;
+                    }
+                    consuming = consumer.accept(ahead.poll().get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(e.getMessage());
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Computes the chunk boundaries. Every boundary but the last lies directly behind a line feed.
+     */
+    private static List<Long> split(FileChannel channel, int threads) throws IOException {
+        long size = channel.size();
+        long chunkSize = Math.max(MINIMUM_CHUNK_SIZE, size / ((long) threads * CHUNKS_PER_THREAD));
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+        long position = 0;
+        while (position < size) {
+            position = nextLineStart(channel, Math.min(size, position + chunkSize), size);
+            boundaries.add(position);
+        }
+        return boundaries;
+    }
+
+    private static long nextLineStart(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long position = from;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == LINE_FEED_BYTE) {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static Chunk parseChunk(FileChannel channel, long start, long end, boolean keepText) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(Math.toIntExact(end - start));
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes, start + bytes.position()) < 0) {
+                break;
+            }
+        }
+        bytes.flip();
+        CharBuffer chars = StandardCharsets.UTF_8.newDecoder().decode(bytes);
+
+        int length = chars.length();
+        boolean terminated = (length > 0) && (chars.charAt(length - 1) == LINE_FEED);
+        int textLength = terminated ? length - 1 : length;
+        List<Edge> edges = new ArrayList<>(length / AVERAGE_LINE_LENGTH);
+        String invalidLine = null;
+        int lineStart = 0;
+        while (lineStart < length) {
+            int lineEnd = lineStart;
+            while ((lineEnd < length) && (chars.charAt(lineEnd) != LINE_FEED) && (chars.charAt(lineEnd) != CARRIAGE_RETURN)) {
+                lineEnd++;
+            }
+            CharSequence line = chars.subSequence(lineStart, lineEnd);
+            Edge edge = EdgeParser.parse(line);
+            if (edge == null) {
+                invalidLine = line.toString();
+                break;
+            }
+            edges.add(edge);
+            if ((lineEnd + 1 < length) && (chars.charAt(lineEnd) == CARRIAGE_RETURN) && (chars.charAt(lineEnd + 1) == LINE_FEED)) {
+                lineEnd++;
+            }
+            lineStart = lineEnd + 1;
+        }
+
+        CharSequence text = keepText ? chars.subSequence(0, textLength) : null;
+        return new Chunk(edges, invalidLine, text, terminated);
+    }
+}
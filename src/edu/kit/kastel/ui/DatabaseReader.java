@@ -0,0 +1,125 @@
+package edu.kit.kastel.ui;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import edu.kit.kastel.Message;
+
+/**
+ * Utility class reading a database file in a single streaming pass.
+ *
+ * <p>
+ * The file is decoded into a fixed character buffer and split into lines in place. Every line is handed to a {@link LineConsumer} as a
+ * reused {@link CharSequence}, so no {@code String} is created per line. If requested, the file is echoed verbatim while it is read, which
+ * replaces a separate pass reading the whole file into memory.
+ * </p>
+ *
+ * <p>
+ * Like {@link java.io.BufferedReader#readLine()}, a line ends at a line feed, a carriage return or a carriage return followed by a line
+ * feed. The echo is split at line feeds only, so it reproduces the file including its carriage returns.
+ * </p>
+ *
+ * @author uupyx
+ */
+public final class DatabaseReader {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final char LINE_FEED = '\n';
+    private static final char CARRIAGE_RETURN = '\r';
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private DatabaseReader() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Consumer of the lines of a database file.
+     */
+    public interface LineConsumer {
+        /**
+         * Processes a single line. The given sequence is only valid during the call.
+         *
+         * @param line the line without its line terminator.
+         * @return true to continue with the next line, false to stop processing lines.
+         */
+        boolean accept(CharSequence line);
+    }
+
+    /**
+     * Reads a database file line by line.
+     *
+     * <p>
+     * When echoing, the complete file is printed even after the consumer stopped accepting lines; otherwise reading stops as soon as the
+     * consumer returns false. A trailing empty line, i.e. the end of a file terminated by a line feed, is echoed but not consumed.
+     * </p>
+     *
+     * @param file the file to read.
+     * @param echo whether the file content should be echoed.
+     * @param consumer the consumer of the lines.
+     * @throws IOException if the file cannot be read or is not valid UTF-8.
+     */
+    public static void read(Path file, boolean echo, LineConsumer consumer) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            char[] buffer = new char[BUFFER_SIZE];
+            StringBuilder line = new StringBuilder();
+            boolean consuming = true;
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                int start = 0;
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] != LINE_FEED) {
+                        continue;
+                    }
+                    line.append(buffer, start, i - start);
+                    start = i + 1;
+                    consuming = handle(line, echo, consuming, consumer);
+                    if (!consuming && !echo) {
+                        return;
+                    }
+                    line.setLength(0);
+                }
+                line.append(buffer, start, read - start);
+            }
+
+            if (echo) {
+                Message.ECHO.print(line);
+            }
+            if (consuming && (line.length() > 0)) {
+                handle(line, false, true, consumer);
+            }
+        }
+    }
+
+    /**
+     * Echoes the text up to a line feed and hands the lines it contains to the consumer. A carriage return at its end terminates the last
+     * line together with the line feed; every other carriage return terminates a line on its own.
+     */
+    private static boolean handle(StringBuilder line, boolean echo, boolean consuming, LineConsumer consumer) {
+        if (echo) {
+            Message.ECHO.print(line);
+        }
+        if (!consuming) {
+            return false;
+        }
+        int start = 0;
+        for (int i = 0; i < line.length() - 1; i++) {
+            if (line.charAt(i) == CARRIAGE_RETURN) {
+                if (!consumer.accept(line.subSequence(start, i))) {
+                    return false;
+                }
+                start = i + 1;
+            }
+        }
+        line.delete(0, start);
+        int length = line.length();
+        if ((length > 0) && (line.charAt(length - 1) == CARRIAGE_RETURN)) {
+            line.setLength(length - 1);
+        }
+        return consumer.accept(line);
+    }
+}
@@ -1,30 +1,42 @@
 package edu.kit.kastel.ui;
 
+import edu.kit.kastel.model.Category;
 import edu.kit.kastel.model.Edge;
 import edu.kit.kastel.model.Node;
 import edu.kit.kastel.model.Predicate;
+import edu.kit.kastel.model.Product;
 
 /**
  * Utility class for parsing edge specification strings.
  *
+ * <p>
+ * The grammar {@code <subject> <predicate> <object>} is recognised by a hand-written scanner working directly on the input characters, so
+ * parsing a line neither compiles nor runs a regular expression and allocates nothing but the parsed nodes and their names.
+ * </p>
+ *
  * @author uupyx
  */
 public final class EdgeParser {
 
-    private static final String REGEX_SUBJECT = "(?<subject>[a-zA-Z0-9]+(?:\\s*\\(\\s*id\\s*=\\s*[0-9]+\\s*\\))?)\\s+";
-    private static final String REGEX_PREDICATE = "(?<predicate>contains|contained-in|part-of|has-part|successor-of|predecessor-of)\\s+";
-    private static final String REGEX_OBJECT = "(?<object>[a-zA-Z0-9]+(?:\\s*\\(\\s*id\\s*=\\s*[0-9]+\\s*\\))?)\\s*$";
-    private static final String PATTERN_REGEX = "^" + REGEX_SUBJECT + REGEX_PREDICATE + REGEX_OBJECT;
+    private static final Predicate[] PREDICATES = Predicate.values();
+
+    private static final String KEYWORD_ID = "id";
+    private static final char SYMBOL_OPEN_PAREN = '(';
+    private static final char SYMBOL_CLOSE_PAREN = ')';
+    private static final char SYMBOL_EQUALS = '=';
+    private static final int RADIX = 10;
+    private static final int INVALID_ID = -1;
 
-    private static final String GROUP_SUBJECT = "subject";
-    private static final String GROUP_PREDICATE = "predicate";
-    private static final String GROUP_OBJECT = "object";
+    private final CharSequence input;
+    private int pos;
 
     /**
-     * Private constructor to prevent instantiation.
+     * Private constructor, parsing is done through {@link #parse(CharSequence)}.
+     *
+     * @param input the input to scan.
      */
-    private EdgeParser() {
-        // Prevent instantiation
+    private EdgeParser(CharSequence input) {
+        this.input = input;
     }
 
     /**
@@ -33,20 +45,146 @@ public final class EdgeParser {
      * @param input the input string.
      * @return the parsed Edge, or null if parsing fails.
      */
-    public static Edge parse(String input) {
-        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile(PATTERN_REGEX);
-        java.util.regex.Matcher matcher = pattern.matcher(input);
-        if (!matcher.matches()) {
+    public static Edge parse(CharSequence input) {
+        return new EdgeParser(input).parseEdge();
+    }
+
+    private Edge parseEdge() {
+        Node subject = parseNode();
+        if ((subject == null) || !skipWhitespace()) {
+            return null;
+        }
+        Predicate predicate = parsePredicate();
+        if ((predicate == null) || !skipWhitespace()) {
             return null;
         }
-        String subjectStr = matcher.group(GROUP_SUBJECT);
-        String predicateStr = matcher.group(GROUP_PREDICATE);
-        String objectStr = matcher.group(GROUP_OBJECT);
-        Node subject = NodeParser.parse(subjectStr);
-        Node object = NodeParser.parse(objectStr);
-        if ((subject == null) || (object == null)) {
+        Node object = parseNode();
+        if (object == null) {
+            return null;
+        }
+        skipWhitespace();
+        if (pos != input.length()) {
+            return null;
+        }
+        return new Edge(subject, object, predicate);
+    }
+
+    private Node parseNode() {
+        int start = pos;
+        while ((pos < input.length()) && isNameCharacter(input.charAt(pos))) {
+            pos++;
+        }
+        if (pos == start) {
             return null;
         }
-        return new Edge(subject, object, Predicate.get(predicateStr));
+        String name = input.subSequence(start, pos).toString();
+
+        int end = pos;
+        skipWhitespace();
+        if ((pos >= input.length()) || (input.charAt(pos) != SYMBOL_OPEN_PAREN)) {
+            pos = end;
+            return new Category(name);
+        }
+        pos++;
+        skipWhitespace();
+        if (!consume(KEYWORD_ID)) {
+            return null;
+        }
+        skipWhitespace();
+        if (!consume(SYMBOL_EQUALS)) {
+            return null;
+        }
+        skipWhitespace();
+        int id = parseId();
+        if (id == INVALID_ID) {
+            return null;
+        }
+        skipWhitespace();
+        if (!consume(SYMBOL_CLOSE_PAREN)) {
+            return null;
+        }
+        return new Product(name, id);
+    }
+
+    private int parseId() {
+        int start = pos;
+        long id = 0;
+        while ((pos < input.length()) && isDigit(input.charAt(pos))) {
+            id = (id * RADIX) + (input.charAt(pos) - '0');
+            if (id > Integer.MAX_VALUE) {
+                return INVALID_ID;
+            }
+            pos++;
+        }
+        if (pos == start) {
+            return INVALID_ID;
+        }
+        return (int) id;
+    }
+
+    private Predicate parsePredicate() {
+        int start = pos;
+        while ((pos < input.length()) && !isWhitespace(input.charAt(pos))) {
+            pos++;
+        }
+        for (Predicate predicate : PREDICATES) {
+            if (regionEquals(predicate.getName(), start, pos)) {
+                return predicate;
+            }
+        }
+        return null;
+    }
+
+    private boolean regionEquals(String expected, int start, int end) {
+        if (expected.length() != (end - start)) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (expected.charAt(i) != input.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean consume(String keyword) {
+        if ((pos + keyword.length() > input.length()) || !regionEquals(keyword, pos, pos + keyword.length())) {
+            return false;
+        }
+        pos += keyword.length();
+        return true;
+    }
+
+    private boolean consume(char symbol) {
+        if ((pos >= input.length()) || (input.charAt(pos) != symbol)) {
+            return false;
+        }
+        pos++;
+        return true;
+    }
+
+    /**
+     * Skips whitespace at the current position.
+     *
+     * @return true if at least one whitespace character was skipped.
+     */
+    private boolean skipWhitespace() {
+        int start = pos;
+        while ((pos < input.length()) && isWhitespace(input.charAt(pos))) {
+            pos++;
+        }
+        return pos > start;
+    }
+
+    private static boolean isNameCharacter(char c) {
+        return ((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z')) || isDigit(c);
+    }
+
+    private static boolean isDigit(char c) {
+        return (c >= '0') && (c <= '9');
+    }
+
+    private static boolean isWhitespace(char c) {
+        return (c == ' ') || (c == '\t') || (c == '\n') || (c == '\u000B') || (c == '\f') || (c == '\r');
     }
 }
@@ -15,10 +15,10 @@ import edu.kit.kastel.model.Product;
 public final class NodeParser {
 
     private static final String SYMBOL_OPEN_PAREN = "(";
-    private static final String REGEX_PRODUCT = "([a-zA-Z0-9]+)\\s*\\(\\s*id\\s*=\\s*([0-9]+)\\s*\\)";
+    private static final Pattern PATTERN_PRODUCT = Pattern.compile("([a-zA-Z0-9]+)\\s*\\(\\s*id\\s*=\\s*([0-9]+)\\s*\\)");
     private static final int GROUP_NAME_INDEX = 1;
     private static final int GROUP_ID_INDEX = 2;
-    private static final String REGEX_CATEGORY = "[a-zA-Z0-9]+";
+    private static final Pattern PATTERN_CATEGORY = Pattern.compile("[a-zA-Z0-9]+");
 
     /**
      * Private constructor to prevent instantiation.
@@ -36,8 +36,7 @@ public final class NodeParser {
     public static Node parse(String token) {
         String trimmedToken = token.trim();
         if (trimmedToken.contains(SYMBOL_OPEN_PAREN)) {
-            Pattern pattern = Pattern.compile(REGEX_PRODUCT);
-            Matcher matcher = pattern.matcher(trimmedToken);
+            Matcher matcher = PATTERN_PRODUCT.matcher(trimmedToken);
             if (matcher.matches()) {
                 String name = matcher.group(GROUP_NAME_INDEX);
                 int id = Integer.parseInt(matcher.group(GROUP_ID_INDEX));
@@ -46,7 +45,7 @@ public final class NodeParser {
                 return null;
             }
         } else {
-            if (trimmedToken.matches(REGEX_CATEGORY)) {
+            if (PATTERN_CATEGORY.matcher(trimmedToken).matches()) {
                 return new Category(trimmedToken);
             }
             return null;
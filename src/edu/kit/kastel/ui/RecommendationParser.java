@@ -1,5 +1,9 @@
 package edu.kit.kastel.ui;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import edu.kit.kastel.model.FinalTerm;
 import edu.kit.kastel.model.IntersectionTerm;
 import edu.kit.kastel.model.Term;
@@ -8,17 +12,27 @@ import edu.kit.kastel.model.UnionTerm;
 /**
  * Recursive descent parser for recommendation expressions.
  *
+ * <p>
+ * {@link #compile(String)} keeps the planned terms of recently used expressions in a bounded LRU cache, keyed by the expression with its
+ * whitespace normalized, so repeated expressions are neither scanned nor planned again.
+ * </p>
+ *
  * @author uupyx
  */
 public class RecommendationParser {
 
     private static final int NO_LENGTH = 0;
+    private static final int COMPILED_CACHE_SIZE = 4096;
+    private static final int INITIAL_CACHE_CAPACITY = 16;
+    private static final float CACHE_LOAD_FACTOR = 0.75f;
+    private static final char SPACE = ' ';
 
     private static final String ERROR_EXTRA_CHARACTERS = "Extra characters at end of input";
     private static final String ERROR_EXPECTED_KEYWORD = "Expected ";
     private static final String ERROR_EXPECTED_STRATEGY = "Expected strategy S1, S2, or S3";
     private static final String ERROR_EXPECTED_PRODUCT_ID = "Expected product id";
     private static final String ERROR_INVALID_PRODUCT_ID = "Invalid product id";
+    private static final String ERROR_INVALID_DEPTH = "Invalid depth";
     private static final String ERROR_EXPECTED_COMMA = "Expected comma";
     private static final String ERROR_EXPECTED_STRING_FORMAT = "Expected \"%s\"";
 
@@ -30,6 +44,15 @@ public class RecommendationParser {
     private static final String SYMBOL_OPEN_PAREN = "(";
     private static final String SYMBOL_CLOSE_PAREN = ")";
     private static final char SYMBOL_COMMA = ',';
+    private static final char SYMBOL_DEPTH = ':';
+
+    private static final Map<String, Term> COMPILED = Collections.synchronizedMap(
+            new LinkedHashMap<>(INITIAL_CACHE_CAPACITY, CACHE_LOAD_FACTOR, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Term> eldest) {
+                    return size() > COMPILED_CACHE_SIZE;
+                }
+            });
 
     private final String input;
     private int pos;
@@ -58,6 +81,48 @@ public class RecommendationParser {
         return t;
     }
 
+    /**
+     * Parses and plans an expression, reusing the term of an earlier expression with the same normalized text.
+     *
+     * @param expression the recommendation expression.
+     * @return the planned Term.
+     * @throws ParseException if parsing fails.
+     */
+    public static Term compile(String expression) throws ParseException {
+        String key = normalize(expression);
+        Term term = COMPILED.get(key);
+        if (term == null) {
+            term = new RecommendationParser(key).parse().plan();
+            COMPILED.put(key, term);
+        }
+        return term;
+    }
+
+    /**
+     * Normalizes the whitespace of an expression: leading and trailing whitespace is removed and every other run of whitespace is
+     * replaced by a single space. Normalized expressions parse to the same term as the original, since whitespace only separates tokens.
+     *
+     * @param expression the recommendation expression.
+     * @return the normalized expression.
+     */
+    public static String normalize(String expression) {
+        StringBuilder sb = new StringBuilder(expression.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < expression.length(); i++) {
+            char c = expression.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = sb.length() > 0;
+            } else {
+                if (pendingSpace) {
+                    sb.append(SPACE);
+                    pendingSpace = false;
+                }
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
     private Term parseTerm() throws ParseException {
         skipWhitespace();
         if (peekStartsWith(KEYWORD_INTERSECTION)) {
@@ -97,9 +162,31 @@ public class RecommendationParser {
     private FinalTerm parseFinal() throws ParseException {
         skipWhitespace();
         String strat = parseStrategy();
+        int depth = KEYWORD_S1.equals(strat) ? FinalTerm.UNBOUNDED : parseDepth();
         skipWhitespace();
         int pid = parseProductId();
-        return new FinalTerm(strat, pid);
+        return new FinalTerm(strat, pid, depth);
+    }
+
+    private int parseDepth() throws ParseException {
+        if ((pos >= input.length()) || (input.charAt(pos) != SYMBOL_DEPTH)) {
+            return FinalTerm.UNBOUNDED;
+        }
+        pos++;
+        int start = pos;
+        while ((pos < input.length()) && Character.isDigit(input.charAt(pos))) {
+            pos++;
+        }
+        int depth;
+        try {
+            depth = Integer.parseInt(input.substring(start, pos));
+        } catch (NumberFormatException e) {
+            throw new ParseException(ERROR_INVALID_DEPTH);
+        }
+        if (depth == FinalTerm.UNBOUNDED) {
+            throw new ParseException(ERROR_INVALID_DEPTH);
+        }
+        return depth;
     }
 
     private String parseStrategy() throws ParseException {